@@ -0,0 +1,69 @@
+package com.csys.template.audit;
+
+import com.csys.template.domain.AuditOperationCount;
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.domain.VisiteurAuditCount;
+import com.csys.template.repository.AuditOperationCountRepository;
+import com.csys.template.repository.VisiteurAuditCountRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Materialized visiteur audit counters, per visiteur and per (visitor type, operation): incremented in the
+ * transaction writing the audit records, so the count and summary endpoints read a row instead of counting.
+ * Archiving audit months does not change them. On SQL Server they are first built from the audit table
+ * by db/sqlserver/audit-counters.sql, before anything can write audit records.
+ */
+@Component
+public class AuditCounters {
+
+    private final VisiteurAuditCountRepository visiteurAuditCountRepository;
+    private final AuditOperationCountRepository auditOperationCountRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AuditCounters(VisiteurAuditCountRepository visiteurAuditCountRepository,
+                         AuditOperationCountRepository auditOperationCountRepository) {
+        this.visiteurAuditCountRepository = visiteurAuditCountRepository;
+        this.auditOperationCountRepository = auditOperationCountRepository;
+    }
+
+    /**
+     * Count visiteur audit records being written, in the transaction writing them.
+     * Counters are locked in key order; one created concurrently by another transaction makes this one fail
+     * on its primary key and roll back with the audit records.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void count(Collection<VisiteurAudit> audits) {
+        if (audits.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> byVisiteur = new TreeMap<>();
+        Map<String, AuditOperationCount> byOperation = new TreeMap<>();
+        for (VisiteurAudit audit : audits) {
+            byVisiteur.merge(audit.getVisiteurId(), 1L, Long::sum);
+            String key = AuditOperationCount.key(audit.getTypeVisiteur(), audit.getOperationType());
+            AuditOperationCount delta = byOperation.computeIfAbsent(key,
+                    k -> new AuditOperationCount(k, audit.getTypeVisiteur(), audit.getOperationType(), 0));
+            delta.setAuditCount(delta.getAuditCount() + 1);
+        }
+
+        for (VisiteurAuditCount counter : visiteurAuditCountRepository.findAllForUpdate(byVisiteur.keySet())) {
+            counter.setAuditCount(counter.getAuditCount() + byVisiteur.remove(counter.getVisiteurId()));
+        }
+        byVisiteur.forEach((visiteurId, count) -> entityManager.persist(new VisiteurAuditCount(visiteurId, count)));
+
+        for (AuditOperationCount counter : auditOperationCountRepository.findAllForUpdate(byOperation.keySet())) {
+            counter.setAuditCount(counter.getAuditCount() + byOperation.remove(counter.getCounterKey()).getAuditCount());
+        }
+        byOperation.values().forEach(entityManager::persist);
+    }
+}
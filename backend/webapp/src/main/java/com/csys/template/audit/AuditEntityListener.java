@@ -1,44 +1,61 @@
 package com.csys.template.audit;
 
+import com.csys.template.domain.AuditEventType;
+import com.csys.template.domain.AuditOutbox;
 import com.csys.template.domain.User;
-import com.csys.template.domain.UserAudit;
 import com.csys.template.domain.Visiteur;
 import com.csys.template.domain.VisiteurAudit;
-import com.csys.template.repository.UserAuditRepository;
-import com.csys.template.repository.VisiteurAuditRepository;
+import com.csys.template.repository.AuditOutboxRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.orm.jpa.EntityManagerHolder;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.persistence.*;
 import javax.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * JPA Entity Listener for auditing User and Visiteur entities.
- * Automatically captures audit information when entities are created, updated, or deleted.
+ * Automatically captures audit information when entities are created, updated, or deleted,
+ * as an outbox row written in the same transaction; {@link AuditOutboxRelay} moves it to the audit tables.
+ * Old and new values hold only the fields the operation changed, compared to the state loaded from the database.
  */
 @Component
 public class AuditEntityListener {
 
-    private static UserAuditRepository userAuditRepository;
-    private static VisiteurAuditRepository visiteurAuditRepository;
+    private static final Object PENDING_AUDITS_KEY = new Object();
+
+    private static final String PASSWORD_FIELD = "password";
+    private static final String MASKED = "********";
+
     private static ObjectMapper objectMapper;
 
-    @Autowired
-    public void setUserAuditRepository(UserAuditRepository userAuditRepository) {
-        AuditEntityListener.userAuditRepository = userAuditRepository;
-    }
+    /**
+     * Per instance: Hibernate gets its listener instances from the application context owning the persistence unit.
+     * Looked up lazily, the repository depending on the persistence unit being built when the listener is created.
+     */
+    private ObjectProvider<AuditOutboxRepository> auditOutboxRepository;
 
     @Autowired
-    public void setVisiteurAuditRepository(VisiteurAuditRepository visiteurAuditRepository) {
-        AuditEntityListener.visiteurAuditRepository = visiteurAuditRepository;
+    public void setAuditOutboxRepository(ObjectProvider<AuditOutboxRepository> auditOutboxRepository) {
+        this.auditOutboxRepository = auditOutboxRepository;
     }
 
     @Autowired
@@ -47,89 +64,267 @@ public class AuditEntityListener {
         AuditEntityListener.objectMapper = objectMapper;
     }
 
+    /**
+     * Remember the state read from the database: the next audit of the entity records the fields that changed since.
+     */
+    @PostLoad
+    public void postLoad(Object entity) {
+        if (entity instanceof User) {
+            ((User) entity).setAuditSnapshot(auditState((User) entity));
+        } else if (entity instanceof Visiteur) {
+            ((Visiteur) entity).setAuditSnapshot(auditState((Visiteur) entity));
+        }
+    }
+
     @PostPersist
     public void postPersist(Object entity) {
         if (entity instanceof User) {
-            createUserAudit((User) entity, "CREATE", null);
+            createUserAudit((User) entity, "CREATE");
         } else if (entity instanceof Visiteur) {
-            createVisiteurAudit((Visiteur) entity, "CREATE", null);
+            createVisiteurAudit((Visiteur) entity, "CREATE");
         }
     }
 
     @PostUpdate
     public void postUpdate(Object entity) {
         if (entity instanceof User) {
-            createUserAudit((User) entity, "UPDATE", null);
+            createUserAudit((User) entity, "UPDATE");
         } else if (entity instanceof Visiteur) {
-            createVisiteurAudit((Visiteur) entity, "UPDATE", null);
+            createVisiteurAudit((Visiteur) entity, "UPDATE");
         }
     }
 
     @PostRemove
     public void postRemove(Object entity) {
         if (entity instanceof User) {
-            createUserAudit((User) entity, "DELETE", null);
+            createUserAudit((User) entity, "DELETE");
         } else if (entity instanceof Visiteur) {
-            createVisiteurAudit((Visiteur) entity, "DELETE", null);
+            createVisiteurAudit((Visiteur) entity, "DELETE");
         }
     }
 
-    private void createUserAudit(User user, String operationType, User oldUser) {
-        if (userAuditRepository == null) return;
+    /**
+     * Failures propagate: the change fails with its audit rather than commit without it.
+     */
+    private void createUserAudit(User user, String operationType) {
+        Map<String, Object> state = auditState(user);
+        Map<String, Object> payload = new LinkedHashMap<>(state);
+        payload.remove(PASSWORD_FIELD);
+        AuditOutbox row = outboxRow(AuditOutbox.USER, user.getId(), operationType, payload);
+        setChanges(row, "CREATE".equals(operationType) ? null : user.getAuditSnapshot(), "DELETE".equals(operationType) ? null : state);
+        user.setAuditSnapshot(state);
+        record(row);
+    }
 
-        try {
-            UserAudit audit = new UserAudit();
-            audit.setUserId(user.getId());
-            audit.setOperationType(operationType);
-            audit.setOperationTimestamp(LocalDateTime.now());
-            audit.setPerformedBy(getCurrentUser());
-            audit.setUsername(user.getUsername());
-            audit.setRole(user.getRole());
-            audit.setNewValues(entityToJson(user));
-            audit.setOldValues(oldUser != null ? entityToJson(oldUser) : null);
-            audit.setIpAddress(getClientIpAddress());
-            audit.setUserAgent(getUserAgent());
-
-            userAuditRepository.save(audit);
-        } catch (Exception e) {
-            // Log error but don't fail the main operation
-            System.err.println("Error creating user audit: " + e.getMessage());
+    private void createVisiteurAudit(Visiteur visiteur, String operationType) {
+        Map<String, Object> before = "CREATE".equals(operationType) ? null : visiteur.getAuditSnapshot();
+        Map<String, Object> state = auditState(visiteur);
+        AuditOutbox row = outboxRow(AuditOutbox.VISITEUR, visiteur.getId(), operationType, state);
+        setChanges(row, before, "DELETE".equals(operationType) ? null : state);
+        row.setEventType(eventType(operationType, before, state));
+        visiteur.setAuditSnapshot(state);
+        record(row);
+    }
+
+    /**
+     * The compact outbox row of a change: who, when and from where, and as payload the audited fields
+     * {@link AuditOutboxRelay} copies into the audit table row, as JSON. The password is never part of it.
+     */
+    private static AuditOutbox outboxRow(String entityType, Long entityId, String operationType, Map<String, Object> payload) {
+        AuditOutbox row = new AuditOutbox();
+        row.setEntityType(entityType);
+        row.setEntityId(entityId);
+        row.setOperationType(operationType);
+        row.setOperationTimestamp(LocalDateTime.now());
+        row.setPerformedBy(getCurrentUser());
+        row.setIpAddress(getClientIpAddress());
+        row.setUserAgent(getUserAgent());
+        row.setPayload(entityToJson(payload));
+        return row;
+    }
+
+    private void record(AuditOutbox row) {
+        if (!queueUntilCommit(row)) {
+            AuditOutboxRepository repository = auditOutboxRepository != null ? auditOutboxRepository.getIfAvailable() : null;
+            if (repository != null) {
+                repository.save(row);
+            }
         }
     }
 
-    private void createVisiteurAudit(Visiteur visiteur, String operationType, Visiteur oldVisiteur) {
-        if (visiteurAuditRepository == null) return;
+    /**
+     * Audit a checkout made with a bulk JPQL statement, which does not fire the entity callbacks.
+     * The visiteur is read back after the statement: its state before is the same visit still open.
+     */
+    public void auditBulkCheckout(Visiteur visiteur) {
+        visiteur.setAuditSnapshot(openVisitState(visiteur));
+        createVisiteurAudit(visiteur, "UPDATE");
+    }
 
-        try {
-            VisiteurAudit audit = new VisiteurAudit();
-            audit.setVisiteurId(visiteur.getId());
-            audit.setOperationType(operationType);
-            audit.setOperationTimestamp(LocalDateTime.now());
-            audit.setPerformedBy(getCurrentUser());
-            audit.setCin(visiteur.getCin());
-            audit.setNom(visiteur.getNom());
-            audit.setPrenom(visiteur.getPrenom());
-            audit.setMatriculeFiscale(visiteur.getMatriculeFiscale());
-            audit.setTypeVisiteur(visiteur.getTypeVisiteur());
-            audit.setDateEntree(visiteur.getDateEntree());
-            audit.setDateSortie(visiteur.getDateSortie());
-            audit.setObservation(visiteur.getObservation());
-            audit.setDetaille(visiteur.getDetaille());
-            audit.setUserEntree(visiteur.getUserEntree());
-            audit.setUserSortie(visiteur.getUserSortie());
-            audit.setNewValues(entityToJson(visiteur));
-            audit.setOldValues(oldVisiteur != null ? entityToJson(oldVisiteur) : null);
-            audit.setIpAddress(getClientIpAddress());
-            audit.setUserAgent(getUserAgent());
-
-            visiteurAuditRepository.save(audit);
-        } catch (Exception e) {
-            // Log error but don't fail the main operation
-            System.err.println("Error creating visiteur audit: " + e.getMessage());
+    /**
+     * Build the audit row capturing the current state of a visiteur in its columns, without old and new values.
+     */
+    public static VisiteurAudit snapshotVisiteur(Visiteur visiteur, String operationType, String performedBy) {
+        VisiteurAudit audit = new VisiteurAudit();
+        audit.setVisiteurId(visiteur.getId());
+        audit.setOperationType(operationType);
+        audit.setOperationTimestamp(LocalDateTime.now());
+        audit.setPerformedBy(performedBy);
+        audit.setCin(visiteur.getCin());
+        audit.setNom(visiteur.getNom());
+        audit.setPrenom(visiteur.getPrenom());
+        audit.setMatriculeFiscale(visiteur.getMatriculeFiscale());
+        audit.setTypeVisiteur(visiteur.getTypeVisiteur());
+        audit.setDateEntree(visiteur.getDateEntree());
+        audit.setDateSortie(visiteur.getDateSortie());
+        audit.setObservation(visiteur.getObservation());
+        audit.setDetaille(visiteur.getDetaille());
+        audit.setUserEntree(visiteur.getUserEntree());
+        audit.setUserSortie(visiteur.getUserSortie());
+        return audit;
+    }
+
+    /**
+     * The audit row of a visit closed by a bulk checkout, {@code visiteur} being read back after the statement.
+     */
+    public static VisiteurAudit checkoutAudit(Visiteur visiteur, String performedBy) {
+        VisiteurAudit audit = snapshotVisiteur(visiteur, "UPDATE", performedBy);
+        AuditOutbox changes = new AuditOutbox();
+        setChanges(changes, openVisitState(visiteur), auditState(visiteur));
+        audit.setOldValues(changes.getOldValues());
+        audit.setNewValues(changes.getNewValues());
+        audit.setEventType(AuditEventType.CHECK_OUT);
+        return audit;
+    }
+
+    /**
+     * The event a visiteur operation records: an update setting the exit date is the checkout, any other an edit.
+     */
+    static AuditEventType eventType(String operationType, Map<String, Object> before, Map<String, Object> after) {
+        switch (operationType) {
+            case "CREATE":
+                return AuditEventType.CHECK_IN;
+            case "DELETE":
+                return AuditEventType.DELETE;
+            default:
+                boolean closed = before != null && before.get("dateSortie") == null && after.get("dateSortie") != null;
+                return closed ? AuditEventType.CHECK_OUT : AuditEventType.EDIT;
+        }
+    }
+
+    /**
+     * The audited fields of a visiteur, compared field by field to find what an operation changed.
+     * Version and the created/modified columns are left out: they change with every write.
+     */
+    static Map<String, Object> auditState(Visiteur visiteur) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("cin", visiteur.getCin());
+        state.put("nom", visiteur.getNom());
+        state.put("prenom", visiteur.getPrenom());
+        state.put("matriculeFiscale", visiteur.getMatriculeFiscale());
+        state.put("typeVisiteur", visiteur.getTypeVisiteur());
+        state.put("dateEntree", visiteur.getDateEntree());
+        state.put("dateSortie", visiteur.getDateSortie());
+        state.put("observation", visiteur.getObservation());
+        state.put("detaille", visiteur.getDetaille());
+        state.put("userEntree", visiteur.getUserEntree());
+        state.put("userSortie", visiteur.getUserSortie());
+        return state;
+    }
+
+    static Map<String, Object> auditState(User user) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("username", user.getUsername());
+        state.put(PASSWORD_FIELD, user.getPassword());
+        state.put("role", user.getRole());
+        return state;
+    }
+
+    private static Map<String, Object> openVisitState(Visiteur visiteur) {
+        Map<String, Object> state = auditState(visiteur);
+        state.put("dateSortie", null);
+        state.put("userSortie", null);
+        return state;
+    }
+
+    /**
+     * Store the fields that differ between two states as the old and new values of the row: only those fields,
+     * with the value each had. A missing "before" is a creation (only the fields set are kept), a missing "after"
+     * a deletion (the fields that were set). The password is recorded as changed, never with its value.
+     */
+    private static void setChanges(AuditOutbox row, Map<String, Object> before, Map<String, Object> after) {
+        Map<String, Object> oldValues = new LinkedHashMap<>();
+        Map<String, Object> newValues = new LinkedHashMap<>();
+        for (String field : (after != null ? after : before).keySet()) {
+            Object oldValue = before != null ? before.get(field) : null;
+            Object newValue = after != null ? after.get(field) : null;
+            if (Objects.equals(oldValue, newValue)) {
+                continue;
+            }
+            if (PASSWORD_FIELD.equals(field)) {
+                oldValue = oldValue != null ? MASKED : null;
+                newValue = newValue != null ? MASKED : null;
+            }
+            if (before != null) {
+                oldValues.put(field, oldValue);
+            }
+            if (after != null) {
+                newValues.put(field, newValue);
+            }
         }
+        row.setOldValues(before != null ? entityToJson(oldValues) : null);
+        row.setNewValues(after != null ? entityToJson(newValues) : null);
     }
 
-    private String getCurrentUser() {
+    /**
+     * Queue an outbox row to be persisted just before the current transaction commits, so it commits or rolls back
+     * with the change it records. With sequence-generated ids the post-events fire during the flush, where persisting
+     * would modify the action queue being executed; deferring also lets all rows of the transaction go out as one
+     * JDBC batch. Returns false when there is no transaction to attach to.
+     */
+    @SuppressWarnings("unchecked")
+    private static boolean queueUntilCommit(AuditOutbox row) {
+        SessionImplementor session = currentSession();
+        if (session == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+
+        List<AuditOutbox> pending = (List<AuditOutbox>) TransactionSynchronizationManager.getResource(PENDING_AUDITS_KEY);
+        if (pending == null) {
+            List<AuditOutbox> rows = new ArrayList<>();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> {
+                rows.forEach(s::persist);
+                s.flush();
+            });
+            TransactionSynchronizationManager.bindResource(PENDING_AUDITS_KEY, rows);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_AUDITS_KEY);
+                }
+            });
+            pending = rows;
+        }
+        pending.add(row);
+        return true;
+    }
+
+    /**
+     * Session of the JPA transaction bound to the current thread, whichever application context started it.
+     */
+    private static SessionImplementor currentSession() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                return ((EntityManagerHolder) resource).getEntityManager().unwrap(SessionImplementor.class);
+            }
+        }
+        return null;
+    }
+
+    private static String getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || 
             "anonymousUser".equals(authentication.getPrincipal())) {
@@ -138,7 +333,7 @@ public class AuditEntityListener {
         return authentication.getName();
     }
 
-    private String getClientIpAddress() {
+    private static String getClientIpAddress() {
         try {
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attributes != null) {
@@ -155,7 +350,7 @@ public class AuditEntityListener {
         return "UNKNOWN";
     }
 
-    private String getUserAgent() {
+    private static String getUserAgent() {
         try {
             ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
             if (attributes != null) {
@@ -168,14 +363,11 @@ public class AuditEntityListener {
         return "UNKNOWN";
     }
 
-    private String entityToJson(Object entity) {
+    private static String entityToJson(Object entity) {
         try {
-            if (objectMapper != null) {
-                return objectMapper.writeValueAsString(entity);
-            }
+            return objectMapper.writeValueAsString(entity);
         } catch (JsonProcessingException e) {
-            // Ignore
+            throw new IllegalStateException("Could not write audit values as JSON", e);
         }
-        return entity.toString();
     }
 }
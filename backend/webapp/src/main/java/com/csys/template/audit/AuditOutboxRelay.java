@@ -0,0 +1,191 @@
+package com.csys.template.audit;
+
+import com.csys.template.domain.AuditOutbox;
+import com.csys.template.domain.User;
+import com.csys.template.domain.UserAudit;
+import com.csys.template.domain.Visiteur;
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.repository.AuditOutboxRepository;
+import com.csys.template.repository.UserAuditRepository;
+import com.csys.template.repository.VisiteurAuditRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves audit events from the outbox to visiteur_audit and user_audit, in batches of audit.outbox.batch-size.
+ * Each batch is one transaction inserting the audit rows and deleting the outbox rows they come from, so an
+ * event is audited exactly once: a batch another relay (another node) moved first deletes fewer rows than it read
+ * and is rolled back. Events wait in the database, nothing is lost when the application stops.
+ */
+@Component
+public class AuditOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditOutboxRelay.class);
+
+    private static final String RELAY_USER = "audit-relay";
+
+    private final AuditOutboxRepository auditOutboxRepository;
+    private final VisiteurAuditRepository visiteurAuditRepository;
+    private final UserAuditRepository userAuditRepository;
+    private final AuditCounters auditCounters;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    private final Counter relayed;
+    private final Counter conflicts;
+    private final Timer batchTimer;
+
+    public AuditOutboxRelay(AuditOutboxRepository auditOutboxRepository,
+                            VisiteurAuditRepository visiteurAuditRepository,
+                            UserAuditRepository userAuditRepository,
+                            AuditCounters auditCounters,
+                            PlatformTransactionManager transactionManager,
+                            @Qualifier("auditObjectMapper") ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${audit.outbox.batch-size:200}") int batchSize) {
+        this.auditOutboxRepository = auditOutboxRepository;
+        this.visiteurAuditRepository = visiteurAuditRepository;
+        this.userAuditRepository = userAuditRepository;
+        this.auditCounters = auditCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+
+        this.relayed = meterRegistry.counter("audit.outbox.relayed");
+        this.conflicts = meterRegistry.counter("audit.outbox.conflicts");
+        this.batchTimer = meterRegistry.timer("audit.outbox.batch");
+    }
+
+    /**
+     * Relay every event waiting in the outbox.
+     * @return the number of events moved to the audit tables
+     */
+    @Scheduled(fixedDelayString = "${audit.outbox.poll-interval:PT1S}")
+    public synchronized int relayPending() {
+        // Own principal: these writes must not keep the reads of SYSTEM jobs on the primary
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(RELAY_USER, null, Collections.emptyList()));
+        try {
+            return relayAll();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private int relayAll() {
+        int total = 0;
+        while (true) {
+            int moved;
+            try {
+                moved = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            } catch (ConcurrencyFailureException e) {
+                // Another relay got there first: its transaction audits these events
+                conflicts.increment();
+                log.debug("Outbox batch relayed concurrently, retrying on the next run: {}", e.getMessage());
+                break;
+            } catch (DataAccessException e) {
+                log.error("Could not relay audit outbox, retrying on the next run", e);
+                break;
+            }
+            total += moved;
+            relayed.increment(moved);
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private int relayBatch() {
+        List<AuditOutbox> rows = auditOutboxRepository.findOldest(PageRequest.of(0, batchSize));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<VisiteurAudit> visiteurAudits = new ArrayList<>();
+        List<UserAudit> userAudits = new ArrayList<>();
+        for (AuditOutbox row : rows) {
+            if (AuditOutbox.USER.equals(row.getEntityType())) {
+                userAudits.add(toUserAudit(row));
+            } else {
+                visiteurAudits.add(toVisiteurAudit(row));
+            }
+        }
+        visiteurAuditRepository.saveAll(visiteurAudits);
+        userAuditRepository.saveAll(userAudits);
+
+        List<Long> ids = rows.stream().map(AuditOutbox::getId).collect(Collectors.toList());
+        int deleted = auditOutboxRepository.deleteByIds(ids);
+        if (deleted != rows.size()) {
+            throw new ConcurrencyFailureException("Relayed " + deleted + " of " + rows.size() + " outbox rows");
+        }
+        // Once the rows are ours: a concurrent relay of the same batch stops at the delete, not on the counters
+        auditCounters.count(visiteurAudits);
+        return rows.size();
+    }
+
+    private VisiteurAudit toVisiteurAudit(AuditOutbox row) {
+        VisiteurAudit audit;
+        try {
+            Visiteur visiteur = objectMapper.readValue(row.getPayload(), Visiteur.class);
+            audit = AuditEntityListener.snapshotVisiteur(visiteur, row.getOperationType(), row.getPerformedBy());
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            // Keep the event even if its payload cannot be read back: who, when and what changed
+            log.warn("Unreadable visiteur payload in audit outbox row {}: {}", row.getId(), e.getMessage());
+            audit = new VisiteurAudit();
+            audit.setVisiteurId(row.getEntityId());
+            audit.setOperationType(row.getOperationType());
+            audit.setPerformedBy(row.getPerformedBy());
+        }
+        audit.setVisiteurId(row.getEntityId());
+        audit.setEventType(row.getEventType());
+        audit.setOperationTimestamp(row.getOperationTimestamp());
+        audit.setOldValues(row.getOldValues());
+        audit.setNewValues(row.getNewValues());
+        audit.setIpAddress(row.getIpAddress());
+        audit.setUserAgent(row.getUserAgent());
+        return audit;
+    }
+
+    private UserAudit toUserAudit(AuditOutbox row) {
+        UserAudit audit = new UserAudit();
+        audit.setUserId(row.getEntityId());
+        audit.setOperationType(row.getOperationType());
+        audit.setOperationTimestamp(row.getOperationTimestamp());
+        audit.setPerformedBy(row.getPerformedBy());
+        try {
+            User user = objectMapper.readValue(row.getPayload(), User.class);
+            audit.setUsername(user.getUsername());
+            audit.setRole(user.getRole());
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            log.warn("Unreadable user payload in audit outbox row {}: {}", row.getId(), e.getMessage());
+        }
+        audit.setOldValues(row.getOldValues());
+        audit.setNewValues(row.getNewValues());
+        audit.setIpAddress(row.getIpAddress());
+        audit.setUserAgent(row.getUserAgent());
+        return audit;
+    }
+}
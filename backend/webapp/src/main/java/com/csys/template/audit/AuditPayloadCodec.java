@@ -0,0 +1,176 @@
+package com.csys.template.audit;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Storage format of the audit old/new values. The entities keep JSON strings; Hibernate converts them when
+ * writing or reading the columns. Each JSON document is re-encoded as Smile, which writes numbers in binary
+ * and drops the quotes and separators. The Smile bytes are then deflated against a preset dictionary of the
+ * audited field names and values, so even a one-field diff compresses, unless that makes them larger.
+ * Payloads that are not a JSON document, like the toString() of an entity written by older versions, are kept
+ * as they are, in UTF-8.
+ * Layout: one format byte, then the Smile document, deflated or not, or the text.
+ */
+@Converter
+public class AuditPayloadCodec implements AttributeConverter<String, byte[]> {
+
+    static final byte SMILE = 1;
+    static final byte SMILE_DEFLATE = 2;
+    static final byte TEXT = 3;
+
+    /**
+     * Preset dictionary of {@link #SMILE_DEFLATE}: the words every audit payload repeats, most frequent last.
+     * Rows are decoded with it, so it must never change; a new dictionary needs a new format byte.
+     */
+    private static final byte[] DICTIONARY = ("ROLE_ADMINROLE_USERrolepassword********username"
+            + "VISITEUR_MALADEDOCTEURFOURNISSEURvisiteurMaladedocteurfournisseur"
+            + "matriculeFiscaletypeVisiteurprenomnomcindetailledateEntreeuserEntree"
+            + "observationdateSortieuserSortie:00T").getBytes(StandardCharsets.US_ASCII);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final SmileFactory SMILE_FACTORY = SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build();
+
+    // zlib streams are costly to set up: one per thread, reset for each payload
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    @Override
+    public byte[] convertToDatabaseColumn(String json) {
+        return encode(json);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        return decode(stored);
+    }
+
+    public static byte[] encode(String json) {
+        if (json == null) {
+            return null;
+        }
+        byte[] smile = toSmile(json);
+        if (smile == null) {
+            byte[] text = json.getBytes(StandardCharsets.UTF_8);
+            byte[] stored = new byte[text.length + 1];
+            stored[0] = TEXT;
+            System.arraycopy(text, 0, stored, 1, text.length);
+            return stored;
+        }
+
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setDictionary(DICTIONARY);
+        deflater.setInput(smile, 1, smile.length - 1);
+        deflater.finish();
+        byte[] deflated = new byte[smile.length];
+        deflated[0] = SMILE_DEFLATE;
+        int length = 1;
+        while (!deflater.finished() && length < deflated.length) {
+            length += deflater.deflate(deflated, length, deflated.length - length);
+        }
+        return deflater.finished() && length < smile.length ? Arrays.copyOf(deflated, length) : smile;
+    }
+
+    public static String decode(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (stored.length == 0) {
+            throw new IllegalStateException("Empty audit payload");
+        }
+        if (stored[0] == TEXT) {
+            return new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+        }
+        byte[] smile;
+        int offset;
+        int length;
+        if (stored[0] == SMILE) {
+            smile = stored;
+            offset = 1;
+            length = stored.length - 1;
+        } else if (stored[0] == SMILE_DEFLATE) {
+            smile = inflate(stored);
+            offset = 0;
+            length = smile.length;
+        } else {
+            throw new IllegalStateException("Unknown audit payload format " + stored[0]);
+        }
+
+        StringWriter json = new StringWriter(length * 2);
+        try (JsonParser parser = SMILE_FACTORY.createParser(smile, offset, length);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode audit payload", e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * {@link #SMILE} format byte and Smile document of a JSON document, null if the text is not exactly one.
+     */
+    private static byte[] toSmile(String json) {
+        try (ByteArrayBuilder out = new ByteArrayBuilder(json.length())) {
+            out.write(SMILE);
+            try (JsonParser parser = JSON_FACTORY.createParser(json);
+                 JsonGenerator generator = SMILE_FACTORY.createGenerator(out)) {
+                if (parser.nextToken() == null) {
+                    return null;
+                }
+                generator.copyCurrentStructure(parser);
+                if (parser.nextToken() != null) {
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } catch (JsonProcessingException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode audit payload", e);
+        }
+    }
+
+    private static byte[] inflate(byte[] stored) {
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setDictionary(DICTIONARY);
+        inflater.setInput(stored, 1, stored.length - 1);
+        byte[] smile = new byte[stored.length * 4];
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                if (length == smile.length) {
+                    smile = Arrays.copyOf(smile, smile.length * 2);
+                }
+                int inflated = inflater.inflate(smile, length, smile.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("Truncated audit payload");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt audit payload", e);
+        }
+        return Arrays.copyOf(smile, length);
+    }
+}
@@ -0,0 +1,162 @@
+package com.csys.template.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage of archived audit months: one gzipped NDJSON segment per table and month,
+ * {@code <table>-<yyyy-MM>.ndjson.gz} in audit.archive.dir. A segment only appears once completely written,
+ * so every month up to the latest segment of a table is archived and no longer read from the table.
+ */
+@Component
+public class AuditSegmentStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditSegmentStore.class);
+
+    private static final String SUFFIX = ".ndjson.gz";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    public AuditSegmentStore(@Value("${audit.archive.dir:audit-archive}") String directory,
+                             @Qualifier("auditObjectMapper") ObjectMapper objectMapper) {
+        this.directory = Paths.get(directory);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Segment of a table and month being written: rows are appended with {@link #append},
+     * and the segment becomes visible on {@link #close}.
+     */
+    public class SegmentWriter implements AutoCloseable {
+
+        private final Path target;
+        private final Path temporary;
+        private final Writer writer;
+        private final ObjectWriter rowWriter = objectMapper.writer();
+        private int rows;
+
+        private SegmentWriter(Path target) throws IOException {
+            this.target = target;
+            this.temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            this.writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temporary)), StandardCharsets.UTF_8));
+        }
+
+        public void append(Object row) throws IOException {
+            writer.write(rowWriter.writeValueAsString(row));
+            writer.write('\n');
+            rows++;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /**
+         * Drop the partial file of a segment that could not be completed.
+         */
+        public void abort() {
+            try {
+                writer.close();
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                log.warn("Could not remove partial audit segment {}", temporary, e);
+            }
+        }
+    }
+
+    public SegmentWriter create(String table, YearMonth month) throws IOException {
+        Files.createDirectories(directory);
+        return new SegmentWriter(segment(table, month));
+    }
+
+    public boolean exists(String table, YearMonth month) {
+        return Files.exists(segment(table, month));
+    }
+
+    /**
+     * First month of a table still stored in the database, or null when none is archived.
+     */
+    public YearMonth archivedUntil(String table) {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        String prefix = table + "-";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(SUFFIX))
+                    .map(name -> parseMonth(name.substring(prefix.length(), name.length() - SUFFIX.length())))
+                    .filter(month -> month != null)
+                    .max(YearMonth::compareTo)
+                    .map(month -> month.plusMonths(1))
+                    .orElse(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stream the rows of the archived months {@code to} back to {@code from}, newest month first,
+     * one line at a time: only the row being handled is held in memory.
+     */
+    public <T> void forEachNewestFirst(String table, YearMonth from, YearMonth to, Class<T> type, Consumer<T> action) {
+        for (YearMonth month = to; !month.isBefore(from); month = month.minusMonths(1)) {
+            Path segment = segment(table, month);
+            if (!Files.exists(segment)) {
+                continue;
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    action.accept(objectMapper.readValue(line, type));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read audit segment " + segment, e);
+            }
+        }
+    }
+
+    private Path segment(String table, YearMonth month) {
+        return directory.resolve(table + "-" + month + SUFFIX);
+    }
+
+    private static YearMonth parseMonth(String month) {
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
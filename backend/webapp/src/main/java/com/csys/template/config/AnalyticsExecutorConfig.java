@@ -0,0 +1,55 @@
+package com.csys.template.config;
+
+import com.csys.template.datasource.ReportingWorkload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Configuration of the analytics bulkhead.
+ * Chart and chatbot queries run on this small bounded pool instead of the Tomcat workers,
+ * and on the reporting connection pool, so a heavy report can only delay other reports,
+ * never check-ins and checkouts.
+ */
+@Configuration
+public class AnalyticsExecutorConfig {
+
+    /**
+     * Bounded executor for analytics: once all threads are busy and the queue is full,
+     * new requests are rejected (answered 503) instead of piling up.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor analyticsExecutor(@Value("${analytics.executor.threads:4}") int threads,
+                                                    @Value("${analytics.executor.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("analytics-");
+        executor.setTaskDecorator(reportingTask());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Run each task on the reporting pool, with the security context of the request that submitted it
+     * (used by the replica routing and the audit trail).
+     */
+    private TaskDecorator reportingTask() {
+        return task -> {
+            SecurityContext context = SecurityContextHolder.getContext();
+            return ReportingWorkload.wrap(() -> {
+                SecurityContextHolder.setContext(context);
+                try {
+                    task.run();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+            });
+        };
+    }
+}
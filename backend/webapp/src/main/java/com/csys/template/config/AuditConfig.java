@@ -1,8 +1,6 @@
 package com.csys.template.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.domain.AuditorAware;
@@ -41,13 +39,10 @@ public class AuditConfig {
 
     /**
      * ObjectMapper bean for JSON serialization in audit operations.
-     * Configured to handle Java 8 time types properly.
+     * Being the only ObjectMapper bean, it is also the one Spring MVC uses for JSON responses.
      */
     @Bean("auditObjectMapper")
     public ObjectMapper auditObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        return mapper;
+        return JacksonConfig.configure(new ObjectMapper());
     }
 }
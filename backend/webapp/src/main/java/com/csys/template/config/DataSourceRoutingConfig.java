@@ -0,0 +1,122 @@
+package com.csys.template.config;
+
+import com.csys.template.datasource.DataSourceRole;
+import com.csys.template.datasource.ReadWriteRoutingDataSource;
+import com.csys.template.datasource.ReplicaStalenessGuard;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the datasource split.
+ * Gate traffic uses the "oltp" pool and reporting work (charts, chatbot) the "reporting" pool, each with
+ * its own size and timeouts, so a long scan cannot hold the connections check-ins are waiting for.
+ * When datasource.replica.enabled is true, the other read-only transactions (lists, audit queries) go to
+ * the replica and the reporting pool connects to the replica too.
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+
+    /**
+     * OLTP (read-write) pool, configured from the regular spring.datasource properties.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("oltp");
+        return dataSource;
+    }
+
+    /**
+     * Reporting pool. Connects to the replica when there is one, otherwise to the primary database.
+     */
+    @Bean
+    @ConfigurationProperties("datasource.reporting.hikari")
+    public HikariDataSource reportingDataSource(
+            DataSourceProperties properties,
+            @Value("${datasource.replica.enabled:false}") boolean replicaEnabled,
+            @Value("${datasource.replica.url:}") String replicaUrl,
+            @Value("${datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${datasource.replica.password:${spring.datasource.password:}}") String replicaPassword) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (replicaEnabled) {
+            dataSource.setJdbcUrl(replicaUrl);
+            dataSource.setUsername(replicaUsername);
+            dataSource.setPassword(replicaPassword);
+        }
+        dataSource.setPoolName("reporting");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Replica (read-only) pool. Credentials default to the primary ones.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "enabled", havingValue = "true")
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${datasource.replica.driver-class-name:${spring.datasource.driver-class-name:}}") String driverClassName) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .driverClassName(driverClassName.isEmpty() ? null : driverClassName)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Tracks recent writes per user so their reads stay on the primary until the replica has caught up.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "enabled", havingValue = "true")
+    public ReplicaStalenessGuard replicaStalenessGuard(
+            @Value("${datasource.replica.max-staleness:5s}") Duration maxStaleness) {
+        return new ReplicaStalenessGuard(maxStaleness);
+    }
+
+    /**
+     * The datasource seen by JPA and JDBC: a lazy proxy over the routing datasource,
+     * so the route is chosen after the transaction's read-only flag has been set.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("reportingDataSource") DataSource reportingDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                                 ObjectProvider<ReplicaStalenessGuard> replicaStalenessGuard) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceRole.PRIMARY, primaryDataSource);
+        targets.put(DataSourceRole.REPORTING, reportingDataSource);
+        replicaDataSource.ifAvailable(replica -> targets.put(DataSourceRole.REPLICA, replica));
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(replicaStalenessGuard.getIfAvailable());
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(primaryDataSource);
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,68 @@
+package com.csys.template.config;
+
+import com.csys.template.domain.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Configuration of the Hibernate second-level cache.
+ * The small, rarely changing users table is cached in-process (entity and natural-id regions),
+ * so authentication and user validation on check-in/checkout no longer hit the database.
+ * Writes made through Hibernate update the READ_WRITE regions; the TTL bounds staleness
+ * for changes made directly in the database.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * In-process JCache manager (Caffeine) holding the Hibernate cache regions.
+     * Each application context gets its own manager so contexts never share cached rows.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${hibernate-cache.users.ttl:10m}") Duration usersTtl,
+                                              @Value("${hibernate-cache.users.max-entries:1000}") long usersMaxEntries) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        cacheManager.createCache(User.CACHE_REGION, regionConfiguration(usersTtl, usersMaxEntries));
+        cacheManager.createCache(User.NATURAL_ID_CACHE_REGION, regionConfiguration(usersTtl, usersMaxEntries));
+        return cacheManager;
+    }
+
+    /**
+     * Enable the second-level cache on the JPA EntityManagerFactory, backed by the manager above.
+     * Only entities annotated with @Cacheable are cached.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, JCacheRegionFactory.class.getName());
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+        };
+    }
+
+    private CaffeineConfiguration<Object, Object> regionConfiguration(Duration ttl, long maxEntries) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setMaximumSize(OptionalLong.of(maxEntries));
+        return configuration;
+    }
+}
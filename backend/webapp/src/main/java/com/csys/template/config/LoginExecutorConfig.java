@@ -0,0 +1,31 @@
+package com.csys.template.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Configuration of the login bulkhead.
+ * BCrypt verification is deliberately slow, so logins run on this small bounded pool: a burst of
+ * login attempts can use at most auth.login.executor.threads cores, never every CPU the gate needs.
+ */
+@Configuration
+public class LoginExecutorConfig {
+
+    /**
+     * Bounded executor for password verification: once all threads are busy and the queue is full,
+     * new login attempts are rejected (answered 503) instead of piling up.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskExecutor loginExecutor(@Value("${auth.login.executor.threads:2}") int threads,
+                                                @Value("${auth.login.executor.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("login-");
+        executor.initialize();
+        return executor;
+    }
+}
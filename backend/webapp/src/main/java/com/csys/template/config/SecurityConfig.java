@@ -35,6 +35,9 @@ public class SecurityConfig {
         http.cors().and().csrf().disable()
             .authorizeRequests()
             .antMatchers(HttpMethod.POST, "/api/users/createuser", "/auth/login").permitAll() // ← Corrected path
+            .antMatchers("/error").permitAll() // So a 401 sent by JwtFilter reaches the client instead of turning into 403
+            .antMatchers(HttpMethod.POST, "/api/visiteurs/auto-checkout").hasAuthority("ROLE_ADMIN")
+            .antMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
             .anyRequest().authenticated()
             .and()
             .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
@@ -0,0 +1,10 @@
+package com.csys.template.datasource;
+
+/**
+ * Lookup keys of the physical datasources behind {@link ReadWriteRoutingDataSource}.
+ */
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA,
+    REPORTING
+}
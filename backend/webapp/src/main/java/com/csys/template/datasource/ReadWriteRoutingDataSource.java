@@ -0,0 +1,37 @@
+package com.csys.template.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes reporting work to the reporting pool, read-only transactions to the replica (when there is one)
+ * and everything else to the primary.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the physical connection is only fetched once the transaction's read-only flag is known.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaStalenessGuard stalenessGuard;
+
+    /**
+     * @param stalenessGuard guard of the replica, or null when there is no replica
+     */
+    public ReadWriteRoutingDataSource(ReplicaStalenessGuard stalenessGuard) {
+        this.stalenessGuard = stalenessGuard;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReportingWorkload.isActive()) {
+            return DataSourceRole.REPORTING;
+        }
+        if (stalenessGuard == null || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return DataSourceRole.PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return stalenessGuard.mustReadFromPrimary() ? DataSourceRole.PRIMARY : DataSourceRole.REPLICA;
+        }
+        stalenessGuard.registerWrite();
+        return DataSourceRole.PRIMARY;
+    }
+}
@@ -0,0 +1,69 @@
+package com.csys.template.datasource;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps read-your-writes semantics on top of an asynchronously replicated replica.
+ * After a user commits a write, their read-only transactions stay on the primary
+ * for the configured staleness tolerance, so the agent who just checked a visiteur
+ * in never sees a list that does not contain it yet.
+ */
+public class ReplicaStalenessGuard {
+
+    private final long maxStalenessNanos;
+    private final Map<String, Long> lastCommitByPrincipal = new ConcurrentHashMap<>();
+
+    public ReplicaStalenessGuard(Duration maxStaleness) {
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    /**
+     * Whether the current user committed a write recently enough that the replica may not have it yet.
+     */
+    public boolean mustReadFromPrimary() {
+        if (maxStalenessNanos <= 0) {
+            return false;
+        }
+        String principal = currentPrincipal();
+        Long lastCommit = lastCommitByPrincipal.get(principal);
+        if (lastCommit == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastCommit < maxStalenessNanos) {
+            return true;
+        }
+        lastCommitByPrincipal.remove(principal, lastCommit);
+        return false;
+    }
+
+    /**
+     * Record the commit time of the current read-write transaction for the current user.
+     */
+    public void registerWrite() {
+        if (maxStalenessNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String principal = currentPrincipal();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastCommitByPrincipal.put(principal, System.nanoTime());
+            }
+        });
+    }
+
+    private String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return "SYSTEM";
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,45 @@
+package com.csys.template.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Marks the current thread as running reporting work (charts, chatbot), so
+ * {@link ReadWriteRoutingDataSource} serves its connections from the reporting pool
+ * and a slow scan can never hold a connection a gate check-in is waiting for.
+ */
+public final class ReportingWorkload {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private ReportingWorkload() {
+    }
+
+    public static boolean isActive() {
+        return Boolean.TRUE.equals(ACTIVE.get());
+    }
+
+    /**
+     * Run the given work on the reporting pool.
+     */
+    public static <T> T call(Supplier<T> work) {
+        if (isActive()) {
+            return work.get();
+        }
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * Wrap a task so it runs on the reporting pool, whatever thread executes it.
+     */
+    public static Runnable wrap(Runnable task) {
+        return () -> call(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
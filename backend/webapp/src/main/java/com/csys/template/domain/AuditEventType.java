@@ -0,0 +1,11 @@
+package com.csys.template.domain;
+
+/**
+ * What a visiteur audit row records, in the terms of the gate rather than of the database operation.
+ */
+public enum AuditEventType {
+    CHECK_IN,
+    CHECK_OUT,
+    EDIT,
+    DELETE
+}
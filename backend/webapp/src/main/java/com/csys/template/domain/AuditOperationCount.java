@@ -0,0 +1,35 @@
+package com.csys.template.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Number of visiteur audit records per visitor type and operation, archived ones included,
+ * kept up to date as they are written.
+ */
+@Entity
+@Table(name = "audit_operation_count")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditOperationCount {
+
+    @Id
+    @Column(name = "counter_key", length = 40)
+    private String counterKey; // <typeVisiteur or NONE>:<operationType>
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_visiteur")
+    private TypeVisiteur typeVisiteur;
+
+    @Column(name = "operation_type", nullable = false, length = 10)
+    private String operationType;
+
+    @Column(name = "audit_count", nullable = false)
+    private long auditCount;
+
+    public static String key(TypeVisiteur typeVisiteur, String operationType) {
+        return (typeVisiteur != null ? typeVisiteur.name() : "NONE") + ":" + operationType;
+    }
+}
@@ -0,0 +1,66 @@
+package com.csys.template.domain;
+
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Audit event written in the same transaction as the User or Visiteur change it records,
+ * waiting to be moved to visiteur_audit or user_audit by the outbox relay.
+ */
+@Entity
+@Table(name = "audit_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditOutbox {
+
+    public static final String VISITEUR = "VISITEUR";
+    public static final String USER = "USER";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "audit_outbox_seq")
+    @GenericGenerator(name = "audit_outbox_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "audit_outbox_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false, length = 10)
+    private String entityType; // VISITEUR, USER
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "operation_type", nullable = false, length = 10)
+    private String operationType; // CREATE, UPDATE, DELETE
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 10)
+    private AuditEventType eventType; // Visiteur events only
+
+    @Column(name = "operation_timestamp", nullable = false)
+    private LocalDateTime operationTimestamp;
+
+    @Column(name = "performed_by", nullable = false, length = 100)
+    private String performedBy;
+
+    @Column(name = "ip_address", length = 45)
+    private String ipAddress;
+
+    @Column(name = "user_agent", length = 500)
+    private String userAgent;
+
+    @Column(name = "payload", columnDefinition = "TEXT")
+    private String payload; // JSON of the audited fields after the operation, password left out
+
+    @Column(name = "old_values", columnDefinition = "TEXT")
+    private String oldValues; // Changed fields before the operation, null for CREATE
+
+    @Column(name = "new_values", columnDefinition = "TEXT")
+    private String newValues; // Changed fields after the operation, null for DELETE
+}
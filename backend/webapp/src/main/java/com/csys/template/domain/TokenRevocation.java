@@ -0,0 +1,43 @@
+package com.csys.template.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Token revocation shared by the nodes: each node writes the revocations it makes and polls
+ * those made by the others into its own denylist. Rows are deleted once the tokens they revoke have expired.
+ */
+@Entity
+@Table(name = "token_revocation", indexes = {
+        // Polled by creation time
+        @Index(name = "IX_token_revocation_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+
+    public static final String TOKEN = "TOKEN";
+    public static final String USER = "USER";
+
+    @Id
+    @Column(name = "id", length = 36)
+    private String id; // Random UUID
+
+    @Column(name = "kind", nullable = false, length = 10)
+    private String kind; // TOKEN, USER
+
+    @Column(name = "revoked", nullable = false)
+    private String revoked; // Token id (jti) or username
+
+    @Column(name = "revoked_before")
+    private LocalDateTime revokedBefore; // USER: tokens issued before this are revoked
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // Once past, every token the row revokes has expired
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -3,27 +3,50 @@ package com.csys.template.domain;
 import javax.persistence.*;
 
 import com.csys.template.audit.AuditEntityListener;
+import com.csys.template.security.UserTokenRevocationListener;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Entity
 @Table(name = "users")
-@EntityListeners({AuditingEntityListener.class, AuditEntityListener.class})
+@EntityListeners({AuditingEntityListener.class, AuditEntityListener.class, UserTokenRevocationListener.class})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class User {
+
+    // Second-level cache regions (see HibernateCacheConfig)
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-by-username";
+
 	    @Id
-	    @GeneratedValue(strategy = GenerationType.IDENTITY)
+	    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+	    @GenericGenerator(name = "users_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+	            @Parameter(name = "sequence_name", value = "users_seq"),
+	            @Parameter(name = "increment_size", value = "50"),
+	            @Parameter(name = "optimizer", value = "pooled-lo")
+	    })
 	    private Long id;
 
+	    @NaturalId
 	    @Column(unique = true)
 	    private String username;
 
@@ -31,6 +54,12 @@ public class User {
 
 	    private String role;
 
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Map<String, Object> auditSnapshot; // State as loaded or last audited, the "before" of the next audit diff
+
     // Audit fields
     @CreatedDate
     @Column(name = "created_date")
@@ -61,6 +90,9 @@ public class User {
     public String getRole() { return role; }
     public void setRole(String role) { this.role = role; }
 
+    public Map<String, Object> getAuditSnapshot() { return auditSnapshot; }
+    public void setAuditSnapshot(Map<String, Object> auditSnapshot) { this.auditSnapshot = auditSnapshot; }
+
     // Audit field getters and setters
     public LocalDateTime getCreatedDate() { return createdDate; }
     public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
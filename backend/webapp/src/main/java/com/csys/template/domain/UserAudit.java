@@ -1,6 +1,9 @@
 package com.csys.template.domain;
 
+import com.csys.template.audit.AuditPayloadCodec;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -10,14 +13,22 @@ import java.time.LocalDateTime;
  * Stores complete history of User changes including who made the change and when.
  */
 @Entity
-@Table(name = "user_audit")
+@Table(name = "user_audit", indexes = {
+        // Date range lists and the monthly archive
+        @Index(name = "IX_user_audit_timestamp", columnList = "operation_timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class UserAudit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_audit_seq")
+    @GenericGenerator(name = "user_audit_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "user_audit_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long auditId;
 
     @Column(name = "user_id", nullable = false)
@@ -39,11 +50,13 @@ public class UserAudit {
     @Column(name = "role", length = 100)
     private String role;
 
-    // Additional audit information
-    @Column(name = "old_values", columnDefinition = "TEXT")
+    // Additional audit information; old/new values are stored as compressed Smile
+    @Convert(converter = AuditPayloadCodec.class)
+    @Column(name = "old_values", columnDefinition = "VARBINARY(MAX)")
     private String oldValues; // JSON string of old values for UPDATE operations
 
-    @Column(name = "new_values", columnDefinition = "TEXT")
+    @Convert(converter = AuditPayloadCodec.class)
+    @Column(name = "new_values", columnDefinition = "VARBINARY(MAX)")
     private String newValues; // JSON string of new values for CREATE/UPDATE operations
 
     @Column(name = "ip_address", length = 45)
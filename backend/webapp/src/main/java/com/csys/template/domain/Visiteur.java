@@ -2,14 +2,18 @@ package com.csys.template.domain;
 import javax.persistence.*;
 
 import com.csys.template.audit.AuditEntityListener;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Entity
 @EntityListeners({AuditingEntityListener.class, AuditEntityListener.class})
@@ -20,7 +24,12 @@ import java.time.LocalDateTime;
 public class Visiteur {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visiteur_seq")
+    @GenericGenerator(name = "visiteur_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "visiteur_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long id;
 
     @Column(nullable = false)
@@ -54,6 +63,16 @@ public class Visiteur {
     @Column(name = "user_sortie", length = 100)
     private String userSortie; // User who marked the exit
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version; // Optimistic lock: concurrent edits of the same visit fail instead of overwriting each other
+
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Map<String, Object> auditSnapshot; // State as loaded or last audited, the "before" of the next audit diff
+
     // Audit fields
     @CreatedDate
     @Column(name = "created_date")
@@ -108,6 +127,12 @@ public class Visiteur {
     public String getUserSortie() { return userSortie; }
     public void setUserSortie(String userSortie) { this.userSortie = userSortie; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public Map<String, Object> getAuditSnapshot() { return auditSnapshot; }
+    public void setAuditSnapshot(Map<String, Object> auditSnapshot) { this.auditSnapshot = auditSnapshot; }
+
     // Audit field getters and setters
     public LocalDateTime getCreatedDate() { return createdDate; }
     public void setCreatedDate(LocalDateTime createdDate) { this.createdDate = createdDate; }
@@ -1,6 +1,9 @@
 package com.csys.template.domain;
 
+import com.csys.template.audit.AuditPayloadCodec;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -10,14 +13,24 @@ import java.time.LocalDateTime;
  * Stores complete history of Visiteur changes including who made the change and when.
  */
 @Entity
-@Table(name = "visiteur_audit")
+@Table(name = "visiteur_audit", indexes = {
+        // Lists by event (exits, check-ins) are a range seek in timestamp order
+        @Index(name = "IX_visiteur_audit_event_type", columnList = "event_type, operation_timestamp"),
+        // Date range lists and the monthly archive
+        @Index(name = "IX_visiteur_audit_timestamp", columnList = "operation_timestamp")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class VisiteurAudit {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "visiteur_audit_seq")
+    @GenericGenerator(name = "visiteur_audit_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = "sequence_name", value = "visiteur_audit_seq"),
+            @Parameter(name = "increment_size", value = "50"),
+            @Parameter(name = "optimizer", value = "pooled-lo")
+    })
     private Long auditId;
 
     @Column(name = "visiteur_id", nullable = false)
@@ -26,6 +39,10 @@ public class VisiteurAudit {
     @Column(name = "operation_type", nullable = false, length = 10)
     private String operationType; // CREATE, UPDATE, DELETE
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", length = 10)
+    private AuditEventType eventType;
+
     @Column(name = "operation_timestamp", nullable = false)
     private LocalDateTime operationTimestamp;
 
@@ -67,11 +84,13 @@ public class VisiteurAudit {
     @Column(name = "user_sortie", length = 100)
     private String userSortie;
 
-    // Additional audit information
-    @Column(name = "old_values", columnDefinition = "TEXT")
+    // Additional audit information; old/new values are stored as compressed Smile
+    @Convert(converter = AuditPayloadCodec.class)
+    @Column(name = "old_values", columnDefinition = "VARBINARY(MAX)")
     private String oldValues; // JSON string of old values for UPDATE operations
 
-    @Column(name = "new_values", columnDefinition = "TEXT")
+    @Convert(converter = AuditPayloadCodec.class)
+    @Column(name = "new_values", columnDefinition = "VARBINARY(MAX)")
     private String newValues; // JSON string of new values for CREATE/UPDATE operations
 
     @Column(name = "ip_address", length = 45)
@@ -105,6 +124,14 @@ public class VisiteurAudit {
         this.operationType = operationType;
     }
 
+    public AuditEventType getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(AuditEventType eventType) {
+        this.eventType = eventType;
+    }
+
     public LocalDateTime getOperationTimestamp() {
         return operationTimestamp;
     }
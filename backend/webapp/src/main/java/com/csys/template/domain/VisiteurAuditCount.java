@@ -0,0 +1,23 @@
+package com.csys.template.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Number of audit records of a visiteur, archived ones included, kept up to date as they are written.
+ */
+@Entity
+@Table(name = "visiteur_audit_count")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VisiteurAuditCount {
+
+    @Id
+    @Column(name = "visiteur_id")
+    private Long visiteurId;
+
+    @Column(name = "audit_count", nullable = false)
+    private long auditCount;
+}
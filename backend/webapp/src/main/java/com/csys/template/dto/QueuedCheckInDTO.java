@@ -0,0 +1,57 @@
+package com.csys.template.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a check-in accepted by the write-behind queue but not yet persisted.
+ * Returned to the gate as the acknowledgement and written to the local journal.
+ */
+public class QueuedCheckInDTO {
+
+    private String provisionalId;
+    private VisiteurDTO visiteur;
+    private String currentUser;
+    private LocalDateTime dateEntree;
+
+    public QueuedCheckInDTO() {
+    }
+
+    public QueuedCheckInDTO(String provisionalId, VisiteurDTO visiteur, String currentUser, LocalDateTime dateEntree) {
+        this.provisionalId = provisionalId;
+        this.visiteur = visiteur;
+        this.currentUser = currentUser;
+        this.dateEntree = dateEntree;
+    }
+
+    public String getProvisionalId() {
+        return provisionalId;
+    }
+
+    public void setProvisionalId(String provisionalId) {
+        this.provisionalId = provisionalId;
+    }
+
+    public VisiteurDTO getVisiteur() {
+        return visiteur;
+    }
+
+    public void setVisiteur(VisiteurDTO visiteur) {
+        this.visiteur = visiteur;
+    }
+
+    public String getCurrentUser() {
+        return currentUser;
+    }
+
+    public void setCurrentUser(String currentUser) {
+        this.currentUser = currentUser;
+    }
+
+    public LocalDateTime getDateEntree() {
+        return dateEntree;
+    }
+
+    public void setDateEntree(LocalDateTime dateEntree) {
+        this.dateEntree = dateEntree;
+    }
+}
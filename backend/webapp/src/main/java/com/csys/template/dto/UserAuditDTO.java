@@ -1,5 +1,6 @@
 package com.csys.template.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -8,7 +9,8 @@ import java.time.LocalDateTime;
 
 /**
  * DTO for UserAudit entity.
- * Used for transferring audit data in API responses.
+ * Used for transferring audit data in API responses. Lists carry summaries, without the old/new values
+ * and user agent, which only the single record endpoints return.
  */
 @Data
 @NoArgsConstructor
@@ -22,11 +24,29 @@ public class UserAuditDTO {
     private String performedBy;
     private String username;
     private String role;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String oldValues;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String newValues;
     private String ipAddress;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String userAgent;
 
+    /**
+     * Summary of an audit record, as selected by the list queries.
+     */
+    public UserAuditDTO(Long auditId, Long userId, String operationType, LocalDateTime operationTimestamp,
+                        String performedBy, String username, String role, String ipAddress) {
+        this.auditId = auditId;
+        this.userId = userId;
+        this.operationType = operationType;
+        this.operationTimestamp = operationTimestamp;
+        this.performedBy = performedBy;
+        this.username = username;
+        this.role = role;
+        this.ipAddress = ipAddress;
+    }
+
     // Getters and Setters
     public Long getAuditId() {
         return auditId;
@@ -13,11 +13,6 @@ public class UserDTO {
     private String role;
     private String password;
 
-    // Default constructor
-    public UserDTO() {
-        super();
-    }
-
     // Custom constructor for specific use case
     public UserDTO(Long id, String username, String role) {
         this.id = id;
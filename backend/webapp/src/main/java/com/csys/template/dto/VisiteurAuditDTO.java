@@ -1,6 +1,8 @@
 package com.csys.template.dto;
 
+import com.csys.template.domain.AuditEventType;
 import com.csys.template.domain.TypeVisiteur;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,7 +11,8 @@ import java.time.LocalDateTime;
 
 /**
  * DTO for VisiteurAudit entity.
- * Used for transferring audit data in API responses.
+ * Used for transferring audit data in API responses. Lists carry summaries, without the old/new values
+ * and user agent, which only the single record endpoints return.
  */
 @Data
 @NoArgsConstructor
@@ -19,6 +22,7 @@ public class VisiteurAuditDTO {
     private Long auditId;
     private Long visiteurId;
     private String operationType;
+    private AuditEventType eventType;
     private LocalDateTime operationTimestamp;
     private String performedBy;
     private String cin;
@@ -32,11 +36,42 @@ public class VisiteurAuditDTO {
     private String detaille;
     private String userEntree;
     private String userSortie;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String oldValues;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String newValues;
     private String ipAddress;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private String userAgent;
 
+    /**
+     * Summary of an audit record, as selected by the list queries.
+     */
+    public VisiteurAuditDTO(Long auditId, Long visiteurId, String operationType, AuditEventType eventType,
+                            LocalDateTime operationTimestamp, String performedBy, String cin, String nom, String prenom,
+                            String matriculeFiscale, TypeVisiteur typeVisiteur, LocalDateTime dateEntree,
+                            LocalDateTime dateSortie, String observation, String detaille, String userEntree,
+                            String userSortie, String ipAddress) {
+        this.auditId = auditId;
+        this.visiteurId = visiteurId;
+        this.operationType = operationType;
+        this.eventType = eventType;
+        this.operationTimestamp = operationTimestamp;
+        this.performedBy = performedBy;
+        this.cin = cin;
+        this.nom = nom;
+        this.prenom = prenom;
+        this.matriculeFiscale = matriculeFiscale;
+        this.typeVisiteur = typeVisiteur;
+        this.dateEntree = dateEntree;
+        this.dateSortie = dateSortie;
+        this.observation = observation;
+        this.detaille = detaille;
+        this.userEntree = userEntree;
+        this.userSortie = userSortie;
+        this.ipAddress = ipAddress;
+    }
+
     // Getters and Setters
     public Long getAuditId() {
         return auditId;
@@ -62,6 +97,14 @@ public class VisiteurAuditDTO {
         this.operationType = operationType;
     }
 
+    public AuditEventType getEventType() {
+        return eventType;
+    }
+
+    public void setEventType(AuditEventType eventType) {
+        this.eventType = eventType;
+    }
+
     public LocalDateTime getOperationTimestamp() {
         return operationTimestamp;
     }
@@ -0,0 +1,92 @@
+package com.csys.template.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for the result of a batch check-in.
+ * Valid items are created in a single transaction; invalid items are reported by their index in the request.
+ */
+public class VisiteurBatchResultDTO {
+
+    private int submitted;
+    private List<VisiteurDTO> created = new ArrayList<>();
+    private List<ItemError> errors = new ArrayList<>();
+
+    public VisiteurBatchResultDTO() {
+    }
+
+    public VisiteurBatchResultDTO(int submitted) {
+        this.submitted = submitted;
+    }
+
+    public void addError(int index, String cin, String message) {
+        errors.add(new ItemError(index, cin, message));
+    }
+
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(int submitted) {
+        this.submitted = submitted;
+    }
+
+    public List<VisiteurDTO> getCreated() {
+        return created;
+    }
+
+    public void setCreated(List<VisiteurDTO> created) {
+        this.created = created;
+    }
+
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ItemError> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * Validation error of a single item of the batch.
+     */
+    public static class ItemError {
+        private int index;
+        private String cin;
+        private String message;
+
+        public ItemError() {
+        }
+
+        public ItemError(int index, String cin, String message) {
+            this.index = index;
+            this.cin = cin;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public void setIndex(int index) {
+            this.index = index;
+        }
+
+        public String getCin() {
+            return cin;
+        }
+
+        public void setCin(String cin) {
+            this.cin = cin;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -51,10 +51,7 @@ public class VisiteurDTO {
 	    @Size(max = 100)
 	    private String userSortie;
 
-    // Default constructor
-    public VisiteurDTO() {
-        super();
-    }
+	    private Long version;
 
 		public Long getId() {
 			return id;
@@ -152,4 +149,12 @@ public class VisiteurDTO {
 			this.userSortie = userSortie;
 		}
 
+		public Long getVersion() {
+			return version;
+		}
+
+		public void setVersion(Long version) {
+			this.version = version;
+		}
+
 }
@@ -0,0 +1,22 @@
+package com.csys.template.factory;
+
+import com.csys.template.domain.UserAudit;
+import com.csys.template.dto.UserAuditDTO;
+
+public class UserAuditFactory {
+
+    /**
+     * Full audit record, old/new values and user agent included: single record responses.
+     */
+    public static UserAuditDTO entityToDto(UserAudit audit) {
+        if (audit == null) return null;
+
+        UserAuditDTO dto = new UserAuditDTO(audit.getAuditId(), audit.getUserId(), audit.getOperationType(),
+                audit.getOperationTimestamp(), audit.getPerformedBy(), audit.getUsername(), audit.getRole(),
+                audit.getIpAddress());
+        dto.setOldValues(audit.getOldValues());
+        dto.setNewValues(audit.getNewValues());
+        dto.setUserAgent(audit.getUserAgent());
+        return dto;
+    }
+}
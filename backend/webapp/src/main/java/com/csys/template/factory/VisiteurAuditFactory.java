@@ -0,0 +1,33 @@
+package com.csys.template.factory;
+
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.dto.VisiteurAuditDTO;
+
+public class VisiteurAuditFactory {
+
+    /**
+     * Full audit record, old/new values and user agent included: single record responses.
+     */
+    public static VisiteurAuditDTO entityToDto(VisiteurAudit audit) {
+        if (audit == null) return null;
+
+        VisiteurAuditDTO dto = entityToSummaryDto(audit);
+        dto.setOldValues(audit.getOldValues());
+        dto.setNewValues(audit.getNewValues());
+        dto.setUserAgent(audit.getUserAgent());
+        return dto;
+    }
+
+    /**
+     * Audit record without old/new values and user agent: list responses.
+     */
+    public static VisiteurAuditDTO entityToSummaryDto(VisiteurAudit audit) {
+        if (audit == null) return null;
+
+        return new VisiteurAuditDTO(audit.getAuditId(), audit.getVisiteurId(), audit.getOperationType(),
+                audit.getEventType(), audit.getOperationTimestamp(), audit.getPerformedBy(), audit.getCin(),
+                audit.getNom(), audit.getPrenom(), audit.getMatriculeFiscale(), audit.getTypeVisiteur(),
+                audit.getDateEntree(), audit.getDateSortie(), audit.getObservation(), audit.getDetaille(),
+                audit.getUserEntree(), audit.getUserSortie(), audit.getIpAddress());
+    }
+}
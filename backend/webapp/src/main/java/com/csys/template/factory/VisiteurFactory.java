@@ -23,6 +23,7 @@ public class VisiteurFactory {
         dto.setDetaille(v.getDetaille());
         dto.setUserEntree(v.getUserEntree());
         dto.setUserSortie(v.getUserSortie());
+        dto.setVersion(v.getVersion());
         return dto;
     }
 
@@ -42,6 +43,7 @@ public class VisiteurFactory {
         v.setDetaille(dto.getDetaille());
         v.setUserEntree(dto.getUserEntree());
         v.setUserSortie(dto.getUserSortie());
+        v.setVersion(dto.getVersion());
         return v;
     }
 
@@ -0,0 +1,27 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.AuditOperationCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for AuditOperationCount entity.
+ */
+@Repository
+public interface AuditOperationCountRepository extends JpaRepository<AuditOperationCount, String> {
+
+    /**
+     * Counters of some (visitor type, operation) pairs, locked until the end of the transaction incrementing them.
+     * In key order, so that concurrent writers lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM AuditOperationCount c WHERE c.counterKey IN :keys ORDER BY c.counterKey")
+    List<AuditOperationCount> findAllForUpdate(@Param("keys") Collection<String> keys);
+}
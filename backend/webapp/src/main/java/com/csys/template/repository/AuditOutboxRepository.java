@@ -0,0 +1,32 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.AuditOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for AuditOutbox entity.
+ */
+@Repository
+public interface AuditOutboxRepository extends JpaRepository<AuditOutbox, Long> {
+
+    /**
+     * The oldest outbox rows, in the order they were written.
+     */
+    @Query("SELECT o FROM AuditOutbox o ORDER BY o.id")
+    List<AuditOutbox> findOldest(Pageable pageable);
+
+    /**
+     * Delete relayed rows; fewer than asked means another relay moved some of them first.
+     */
+    @Modifying
+    @Query("DELETE FROM AuditOutbox o WHERE o.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+}
@@ -4,11 +4,13 @@ import com.csys.template.domain.UserAudit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,7 +18,7 @@ import java.util.List;
  * Provides methods to query audit history for User entities.
  */
 @Repository
-public interface UserAuditRepository extends JpaRepository<UserAudit, Long> {
+public interface UserAuditRepository extends JpaRepository<UserAudit, Long>, UserAuditRepositoryCustom {
 
     /**
      * Find all audit records for a specific user ID, ordered by operation timestamp descending.
@@ -56,6 +58,8 @@ public interface UserAuditRepository extends JpaRepository<UserAudit, Long> {
     @Query("SELECT ua.operationType, COUNT(ua) FROM UserAudit ua WHERE ua.userId = :userId GROUP BY ua.operationType")
     List<Object[]> countOperationsByTypeForUser(@Param("userId") Long userId);
 
+    long countByUserId(Long userId);
+
     /**
      * Find the latest audit record for a specific user.
      */
@@ -65,4 +69,27 @@ public interface UserAuditRepository extends JpaRepository<UserAudit, Long> {
      * Find all audit records for multiple users.
      */
     Page<UserAudit> findByUserIdInOrderByOperationTimestampDesc(List<Long> userIds, Pageable pageable);
+
+    /**
+     * Timestamp of the oldest audit record still in the table.
+     */
+    @Query("SELECT MIN(ua.operationTimestamp) FROM UserAudit ua")
+    LocalDateTime findOldestOperationTimestamp();
+
+    /**
+     * Audit records of a period in id order, starting after an id: one chunk of an archive export.
+     */
+    @Query("SELECT ua FROM UserAudit ua WHERE ua.operationTimestamp >= :from AND ua.operationTimestamp < :to AND ua.auditId > :afterId ORDER BY ua.auditId")
+    List<UserAudit> findArchiveChunk(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                     @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Ids of the audit records of a period, to delete them in chunks once archived.
+     */
+    @Query("SELECT ua.auditId FROM UserAudit ua WHERE ua.operationTimestamp >= :from AND ua.operationTimestamp < :to")
+    List<Long> findIdsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM UserAudit ua WHERE ua.auditId IN :ids")
+    int deleteByAuditIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,19 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.UserAudit;
+import com.csys.template.dto.UserAuditDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Custom queries for UserAudit entities that leave out the large text columns.
+ */
+public interface UserAuditRepositoryCustom {
+
+    /**
+     * Page of the audit records matching the specification, as summaries without old/new values and user agent.
+     * Newest first unless the page request is sorted.
+     */
+    Page<UserAuditDTO> findSummaries(Specification<UserAudit> spec, Pageable pageable);
+}
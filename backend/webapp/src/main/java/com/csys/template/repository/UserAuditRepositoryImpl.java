@@ -0,0 +1,62 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.UserAudit;
+import com.csys.template.dto.UserAuditDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * Implementation of {@link UserAuditRepositoryCustom} with criteria constructor queries,
+ * so the SELECT clause only lists the summary columns and no entity is loaded.
+ */
+public class UserAuditRepositoryImpl implements UserAuditRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<UserAuditDTO> findSummaries(Specification<UserAudit> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserAuditDTO> query = cb.createQuery(UserAuditDTO.class);
+        Root<UserAudit> root = query.from(UserAudit.class);
+        query.select(cb.construct(UserAuditDTO.class,
+                root.get("auditId"), root.get("userId"), root.get("operationType"), root.get("operationTimestamp"),
+                root.get("performedBy"), root.get("username"), root.get("role"), root.get("ipAddress")));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, cb));
+        }
+        query.orderBy(pageable.getSort().isSorted()
+                ? toOrders(pageable.getSort(), root, cb)
+                : List.of(cb.desc(root.get("operationTimestamp"))));
+
+        TypedQuery<UserAuditDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<UserAudit> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<UserAudit> root = query.from(UserAudit.class);
+        query.select(cb.count(root));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, cb));
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -5,7 +5,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import com.csys.template.domain.User;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long>{
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+	// Served from the natural-id cache, see UserRepositoryImpl
 	Optional<User> findByUsername(String username);
 
 }
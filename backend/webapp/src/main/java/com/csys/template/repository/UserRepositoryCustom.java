@@ -0,0 +1,17 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.User;
+
+import java.util.Optional;
+
+/**
+ * Custom lookups for User entities that go through the Hibernate second-level cache.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Find a user by username through the natural-id cache.
+     * Repeated lookups of the same user are served from memory instead of the users table.
+     */
+    Optional<User> findByUsername(String username);
+}
@@ -0,0 +1,27 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.VisiteurAuditCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for VisiteurAuditCount entity.
+ */
+@Repository
+public interface VisiteurAuditCountRepository extends JpaRepository<VisiteurAuditCount, Long> {
+
+    /**
+     * Counters of some visiteurs, locked until the end of the transaction incrementing them.
+     * In id order, so that concurrent writers lock them in the same order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM VisiteurAuditCount c WHERE c.visiteurId IN :visiteurIds ORDER BY c.visiteurId")
+    List<VisiteurAuditCount> findAllForUpdate(@Param("visiteurIds") Collection<Long> visiteurIds);
+}
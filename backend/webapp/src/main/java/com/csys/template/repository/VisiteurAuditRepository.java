@@ -1,15 +1,18 @@
 package com.csys.template.repository;
 
+import com.csys.template.domain.AuditEventType;
 import com.csys.template.domain.VisiteurAudit;
 import com.csys.template.domain.TypeVisiteur;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,7 +20,7 @@ import java.util.List;
  * Provides methods to query audit history for Visiteur entities.
  */
 @Repository
-public interface VisiteurAuditRepository extends JpaRepository<VisiteurAudit, Long> {
+public interface VisiteurAuditRepository extends JpaRepository<VisiteurAudit, Long>, VisiteurAuditRepositoryCustom {
 
     /**
      * Find all audit records for a specific visiteur ID, ordered by operation timestamp descending.
@@ -77,15 +80,44 @@ public interface VisiteurAuditRepository extends JpaRepository<VisiteurAudit, Lo
      */
     Page<VisiteurAudit> findByVisiteurIdInOrderByOperationTimestampDesc(List<Long> visiteurIds, Pageable pageable);
 
+    /**
+     * Find audit records by event type, a range of the (event_type, operation_timestamp) index.
+     */
+    Page<VisiteurAudit> findByEventTypeOrderByOperationTimestampDesc(AuditEventType eventType, Pageable pageable);
+
     /**
      * Find audit records by entry/exit operations.
      */
-    @Query("SELECT va FROM VisiteurAudit va WHERE va.operationType = 'UPDATE' AND (va.oldValues LIKE '%dateSortie\":null%' AND va.newValues NOT LIKE '%dateSortie\":null%') ORDER BY va.operationTimestamp DESC")
-    Page<VisiteurAudit> findExitOperations(Pageable pageable);
+    default Page<VisiteurAudit> findExitOperations(Pageable pageable) {
+        return findByEventTypeOrderByOperationTimestampDesc(AuditEventType.CHECK_OUT, pageable);
+    }
 
     /**
      * Count audit records by visitor type and operation type.
      */
     @Query("SELECT va.typeVisiteur, va.operationType, COUNT(va) FROM VisiteurAudit va GROUP BY va.typeVisiteur, va.operationType")
     List<Object[]> countOperationsByTypeAndVisitorType();
+
+    /**
+     * Timestamp of the oldest audit record still in the table.
+     */
+    @Query("SELECT MIN(va.operationTimestamp) FROM VisiteurAudit va")
+    LocalDateTime findOldestOperationTimestamp();
+
+    /**
+     * Audit records of a period in id order, starting after an id: one chunk of an archive export.
+     */
+    @Query("SELECT va FROM VisiteurAudit va WHERE va.operationTimestamp >= :from AND va.operationTimestamp < :to AND va.auditId > :afterId ORDER BY va.auditId")
+    List<VisiteurAudit> findArchiveChunk(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                     @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Ids of the audit records of a period, to delete them in chunks once archived.
+     */
+    @Query("SELECT va.auditId FROM VisiteurAudit va WHERE va.operationTimestamp >= :from AND va.operationTimestamp < :to")
+    List<Long> findIdsBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM VisiteurAudit va WHERE va.auditId IN :ids")
+    int deleteByAuditIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,19 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.dto.VisiteurAuditDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Custom queries for VisiteurAudit entities that leave out the large text columns.
+ */
+public interface VisiteurAuditRepositoryCustom {
+
+    /**
+     * Page of the audit records matching the specification, as summaries without old/new values and user agent.
+     * Newest first unless the page request is sorted.
+     */
+    Page<VisiteurAuditDTO> findSummaries(Specification<VisiteurAudit> spec, Pageable pageable);
+}
@@ -0,0 +1,65 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.dto.VisiteurAuditDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+/**
+ * Implementation of {@link VisiteurAuditRepositoryCustom} with criteria constructor queries,
+ * so the SELECT clause only lists the summary columns and no entity is loaded.
+ */
+public class VisiteurAuditRepositoryImpl implements VisiteurAuditRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<VisiteurAuditDTO> findSummaries(Specification<VisiteurAudit> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<VisiteurAuditDTO> query = cb.createQuery(VisiteurAuditDTO.class);
+        Root<VisiteurAudit> root = query.from(VisiteurAudit.class);
+        query.select(cb.construct(VisiteurAuditDTO.class,
+                root.get("auditId"), root.get("visiteurId"), root.get("operationType"), root.get("eventType"),
+                root.get("operationTimestamp"), root.get("performedBy"), root.get("cin"), root.get("nom"),
+                root.get("prenom"), root.get("matriculeFiscale"), root.get("typeVisiteur"), root.get("dateEntree"),
+                root.get("dateSortie"), root.get("observation"), root.get("detaille"), root.get("userEntree"),
+                root.get("userSortie"), root.get("ipAddress")));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, cb));
+        }
+        query.orderBy(pageable.getSort().isSorted()
+                ? toOrders(pageable.getSort(), root, cb)
+                : List.of(cb.desc(root.get("operationTimestamp"))));
+
+        TypedQuery<VisiteurAuditDTO> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typedQuery.getResultList(), pageable, () -> count(spec));
+    }
+
+    private long count(Specification<VisiteurAudit> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<VisiteurAudit> root = query.from(VisiteurAudit.class);
+        query.select(cb.count(root));
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, cb));
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
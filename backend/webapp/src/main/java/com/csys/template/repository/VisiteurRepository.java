@@ -1,17 +1,23 @@
 package com.csys.template.repository;
 
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.domain.Pageable;
 import com.csys.template.domain.Visiteur;
 
-public interface VisiteurRepository extends JpaRepository<Visiteur, Long>, JpaSpecificationExecutor<Visiteur> {
+public interface VisiteurRepository extends JpaRepository<Visiteur, Long>, JpaSpecificationExecutor<Visiteur>,
+        VisiteurRepositoryCustom {
 	// Filter by CIN
     Page<Visiteur> findByCinContainingIgnoreCase(String cin, Pageable pageable);
 
@@ -32,10 +38,63 @@ public interface VisiteurRepository extends JpaRepository<Visiteur, Long>, JpaSp
     @Query("SELECT v FROM Visiteur v WHERE v.cin = :cin AND v.dateSortie IS NULL")
     Optional<Visiteur> findActiveByCin(@Param("cin") String cin);
 
+    /**
+     * Find which of the given CINs belong to an active visiteur (not yet left), in a single query
+     * @param cins the CINs to check
+     * @return the CINs currently in use
+     */
+    @Query("SELECT v.cin FROM Visiteur v WHERE v.cin IN :cins AND v.dateSortie IS NULL")
+    List<String> findActiveCinsIn(@Param("cins") Collection<String> cins);
+
+    /**
+     * Find the active visiteurs (not yet left) among the given CINs, in a single query
+     * @param cins the CINs to check
+     * @return the active visits of these CINs
+     */
+    @Query("SELECT v FROM Visiteur v WHERE v.cin IN :cins AND v.dateSortie IS NULL")
+    List<Visiteur> findActiveByCinIn(@Param("cins") Collection<String> cins);
+
     /**
      * Find all visiteurs with the given CIN
      * @param cin the CIN to search for
      * @return List of all visiteurs with this CIN
      */
     List<Visiteur> findByCin(String cin);
+
+    /**
+     * Close a visit in a single conditional UPDATE, without reading it first.
+     * Bulk updates bypass the entity listeners, so the caller writes the audit row.
+     * @return 1 if the visit was closed, 0 if it does not exist or has already been closed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Visiteur v SET v.dateSortie = :dateSortie, v.userSortie = :userSortie, v.version = v.version + 1, "
+            + "v.lastModifiedDate = :dateSortie, v.lastModifiedBy = :userSortie "
+            + "WHERE v.id = :id AND v.dateSortie IS NULL")
+    int closeVisit(@Param("id") Long id,
+                   @Param("dateSortie") LocalDateTime dateSortie,
+                   @Param("userSortie") String userSortie);
+
+    /**
+     * Find the active visiteurs (not yet left) who entered before the cutoff, oldest ids first, and lock them
+     * until the end of the transaction, so that no concurrent checkout can close them in the meantime
+     * @param cutoff entry date/time limit (exclusive)
+     * @param pageable chunk size
+     * @return the visits to close
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM Visiteur v WHERE v.dateSortie IS NULL AND v.dateEntree < :cutoff ORDER BY v.id")
+    List<Visiteur> findActiveEnteredBeforeForUpdate(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    /**
+     * Close the given visits in a single UPDATE, skipping any that were closed in the meantime.
+     * Bulk updates bypass the entity listeners, so the caller writes the audit rows.
+     * @return number of visits closed
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Visiteur v SET v.dateSortie = :dateSortie, v.userSortie = :userSortie, v.version = v.version + 1, "
+            + "v.lastModifiedDate = :dateSortie, v.lastModifiedBy = :userSortie "
+            + "WHERE v.id IN :ids AND v.dateSortie IS NULL")
+    int closeActiveVisits(@Param("ids") Collection<Long> ids,
+                          @Param("dateSortie") LocalDateTime dateSortie,
+                          @Param("userSortie") String userSortie);
 }
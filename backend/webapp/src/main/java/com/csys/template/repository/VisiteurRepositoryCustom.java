@@ -0,0 +1,20 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.Visiteur;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Custom queries for Visiteur entities that only select some columns.
+ */
+public interface VisiteurRepositoryCustom {
+
+    /**
+     * Find the visiteurs matching the specification, selecting only the given attributes.
+     * @param attributes attribute names of {@link Visiteur}, in the order the maps should list them
+     * @return one map per visiteur, from attribute name to value
+     */
+    List<Map<String, Object>> findAttributes(Specification<Visiteur> spec, List<String> attributes);
+}
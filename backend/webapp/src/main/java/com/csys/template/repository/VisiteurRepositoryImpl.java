@@ -0,0 +1,51 @@
+package com.csys.template.repository;
+
+import com.csys.template.domain.Visiteur;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Implementation of {@link VisiteurRepositoryCustom} with a criteria tuple query,
+ * so the SELECT clause only lists the requested columns and no entity is loaded.
+ */
+public class VisiteurRepositoryImpl implements VisiteurRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findAttributes(Specification<Visiteur> spec, List<String> attributes) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Visiteur> root = query.from(Visiteur.class);
+
+        List<Selection<?>> selections = attributes.stream()
+                .map(attribute -> root.get(attribute).alias(attribute))
+                .collect(Collectors.toList());
+        query.multiselect(selections);
+        if (spec != null) {
+            query.where(spec.toPredicate(root, query, cb));
+        }
+
+        return entityManager.createQuery(query).getResultStream()
+                .map(tuple -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (String attribute : attributes) {
+                        row.put(attribute, tuple.get(attribute));
+                    }
+                    return row;
+                })
+                .collect(Collectors.toList());
+    }
+}
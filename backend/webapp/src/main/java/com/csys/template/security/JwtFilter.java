@@ -6,8 +6,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
@@ -16,9 +19,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.csys.template.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 @Component
@@ -30,6 +35,15 @@ public class JwtFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    /**
+     * Build the authentication from the verified claims alone, without loading the user from the database.
+     */
+    @Value("${jwt.stateless:true}")
+    private boolean stateless;
+
     // List of paths to exclude from JWT filter
     private static final Logger logger = LoggerFactory.getLogger(JwtFilter.class);
 
@@ -55,24 +69,37 @@ public class JwtFilter extends OncePerRequestFilter {
         logger.debug("📎 Authorization Header: {}", authHeader);
 
         String username = null;
-        String jwt = null;
+        Claims claims = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwt = authHeader.substring(7);
+            String jwt = authHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // The only signature check of the request
+                claims = jwtUtil.extractAllClaims(jwt);
+                username = claims.getSubject();
                 logger.info("🔐 Extracted username: {}", username);
             } catch (Exception e) {
                 logger.warn("⚠️ JWT parsing failed: {}", e.getMessage());
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid JWT token");
                 return;
             }
+            if (tokenDenylist.isRevoked(claims)) {
+                logger.warn("⚠️ Revoked JWT token for user: {}", username);
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Revoked JWT token");
+                return;
+            }
         }
-       
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        String role = claims != null ? claims.get("role", String.class) : null;
+        if (stateless && role != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // Signature, expiry and revocation are checked: the claims are enough, no database read
+            UserDetails principal = new User(username, "", Collections.singletonList(new SimpleGrantedAuthority(role)));
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+            logger.info("✅ JWT is valid. User authenticated from claims: {}", username);
+        } else if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (jwtUtil.validateClaims(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities()
                 );
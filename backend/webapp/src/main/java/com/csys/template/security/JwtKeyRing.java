@@ -0,0 +1,206 @@
+package com.csys.template.security;
+
+import com.google.common.base.Preconditions;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keys signing and verifying the JWTs, identified by the {@code kid} header of the tokens.
+ * <p>
+ * With {@code jwt.keystore.path} set, the keys are the entries of a keystore shared by all the nodes, so a token
+ * issued by one node is accepted by the others. Each alias is a key id; an entry is either
+ * <ul>
+ *     <li>an HMAC secret key ({@code keytool -genseckey -keyalg HmacSHA256 -keysize 256 -storetype PKCS12}),</li>
+ *     <li>an RSA or EC key pair, signing with the private key and verifying with the certificate,</li>
+ *     <li>a certificate alone, only verifying (a node that never issues tokens needs no private key).</li>
+ * </ul>
+ * Rotation is adding an entry: a key starts signing {@code jwt.keystore.activation-delay} after its creation,
+ * leaving every node time to reload the keystore before tokens carry its id, and the key it replaces still verifies
+ * for {@code jwt.keystore.overlap} after that, until the tokens it signed have expired. Retired entries can then be
+ * deleted from the keystore. The file is reloaded when it changes.
+ * <p>
+ * Without a keystore, a random key is generated at startup: tokens are only valid on this node until it restarts.
+ */
+@Component
+public class JwtKeyRing {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtKeyRing.class);
+
+    private final Path keystorePath;
+    private final char[] password;
+    private final String keystoreType;
+    private final Duration activationDelay;
+    private final Duration overlap;
+
+    private volatile List<KeyEntry> entries;
+    private volatile long loadedModified;
+
+    @Autowired
+    public JwtKeyRing(@Value("${jwt.keystore.path:}") String keystorePath,
+                      @Value("${jwt.keystore.password:}") String password,
+                      @Value("${jwt.keystore.type:PKCS12}") String keystoreType,
+                      @Value("${jwt.keystore.activation-delay:PT5M}") Duration activationDelay,
+                      @Value("${jwt.keystore.overlap:PT10H}") Duration overlap) {
+        this.keystorePath = keystorePath.isBlank() ? null : Paths.get(keystorePath);
+        this.password = password.toCharArray();
+        this.keystoreType = keystoreType;
+        this.activationDelay = activationDelay;
+        this.overlap = overlap;
+        if (this.keystorePath == null) {
+            log.warn("No jwt.keystore.path configured: signing with a random key, tokens are only valid on this node until it restarts");
+            Key key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+            this.entries = Collections.singletonList(new KeyEntry("ephemeral-" + UUID.randomUUID(), key, key, Instant.EPOCH));
+        } else {
+            load();
+        }
+    }
+
+    /**
+     * A ring holding a single random key, as when no keystore is configured.
+     */
+    public static JwtKeyRing ephemeral() {
+        return new JwtKeyRing("", "", "PKCS12", Duration.ZERO, Duration.ZERO);
+    }
+
+    /**
+     * The id and key new tokens are signed with: the latest activated key, or the oldest one while none is.
+     * @throws IllegalStateException if that key is a certificate alone
+     */
+    public SigningKey getSigningKey() {
+        Instant now = Instant.now();
+        List<KeyEntry> current = entries;
+        KeyEntry active = current.get(0);
+        for (KeyEntry entry : current) {
+            if (!entry.activation.isAfter(now)) {
+                active = entry;
+            }
+        }
+        Preconditions.checkState(active.signingKey != null, "JWT key %s has no private key in %s", active.kid, keystorePath);
+        return new SigningKey(active.kid, active.signingKey);
+    }
+
+    /**
+     * The key verifying tokens signed by {@code kid}, or null when that key is unknown or retired.
+     */
+    public Key getVerificationKey(String kid) {
+        Instant now = Instant.now();
+        for (KeyEntry entry : entries) {
+            if (entry.kid.equalsIgnoreCase(kid)) {
+                return entry.retiredAt == null || now.isBefore(entry.retiredAt.plus(overlap)) ? entry.verificationKey : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Pick up keys added to, or deleted from, the keystore. A keystore that cannot be read keeps the current keys.
+     */
+    @Scheduled(fixedDelayString = "${jwt.keystore.reload-interval:PT1M}")
+    public void reloadIfChanged() {
+        if (keystorePath == null) {
+            return;
+        }
+        try {
+            if (Files.getLastModifiedTime(keystorePath).toMillis() == loadedModified) {
+                return;
+            }
+            load();
+        } catch (IOException | IllegalStateException e) {
+            log.error("Could not reload JWT keystore {}, keeping {} key(s): {}", keystorePath, entries.size(), e.getMessage());
+        }
+    }
+
+    private synchronized void load() {
+        try {
+            long modified = Files.getLastModifiedTime(keystorePath).toMillis();
+            KeyStore keyStore = KeyStore.getInstance(keystoreType);
+            try (InputStream in = Files.newInputStream(keystorePath)) {
+                keyStore.load(in, password);
+            }
+            List<KeyEntry> loaded = new ArrayList<>();
+            for (String alias : Collections.list(keyStore.aliases())) {
+                Instant activation = keyStore.getCreationDate(alias).toInstant().plus(activationDelay);
+                if (keyStore.isKeyEntry(alias)) {
+                    Key key = keyStore.getKey(alias, password);
+                    Certificate certificate = keyStore.getCertificate(alias);
+                    // Secret keys verify with themselves, private keys with the public key of their certificate
+                    loaded.add(new KeyEntry(alias, key, certificate != null ? certificate.getPublicKey() : key, activation));
+                } else {
+                    loaded.add(new KeyEntry(alias, null, keyStore.getCertificate(alias).getPublicKey(), activation));
+                }
+            }
+            Preconditions.checkState(!loaded.isEmpty(), "No key in JWT keystore %s", keystorePath);
+            loaded.sort(Comparator.comparing(entry -> entry.activation));
+            // A key retires when the next one starts signing
+            for (int i = 0; i < loaded.size() - 1; i++) {
+                loaded.get(i).retiredAt = loaded.get(i + 1).activation;
+            }
+            entries = loaded;
+            loadedModified = modified;
+            log.info("Loaded JWT keys {} from {}", loaded.stream().map(entry -> entry.kid).toList(), keystorePath);
+        } catch (IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Could not load JWT keystore " + keystorePath, e);
+        }
+    }
+
+    /**
+     * A key id and the key signing tokens with it.
+     */
+    public static final class SigningKey {
+
+        private final String kid;
+        private final Key key;
+
+        SigningKey(String kid, Key key) {
+            this.kid = kid;
+            this.key = key;
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public Key getKey() {
+            return key;
+        }
+    }
+
+    private static final class KeyEntry {
+
+        private final String kid;
+        private final Key signingKey;
+        private final Key verificationKey;
+        private final Instant activation;
+        private Instant retiredAt;
+
+        KeyEntry(String kid, Key signingKey, Key verificationKey, Instant activation) {
+            this.kid = kid;
+            this.signingKey = signingKey;
+            this.verificationKey = verificationKey;
+            this.activation = activation;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.csys.template.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Token-bucket throttling of login attempts, per client IP and per username.
+ * Each bucket holds up to "capacity" attempts and refills at "per-minute" attempts a minute, so a user
+ * mistyping a password is never slowed down while scripted attempts are refused before reaching BCrypt.
+ * Only failed authentications count against a username: the attempts that do not fail are given back, so
+ * logging in as someone, with their password or not, cannot keep them out.
+ * The client IP is the address seen by Tomcat: behind the reverse proxy, the one it forwards (application.yml).
+ */
+@Component
+public class LoginThrottle {
+
+    private final Buckets byIp;
+    private final Buckets byUsername;
+
+    public LoginThrottle(@Value("${auth.login.throttle.per-ip.capacity:20}") int ipCapacity,
+                         @Value("${auth.login.throttle.per-ip.per-minute:20}") int ipPerMinute,
+                         @Value("${auth.login.throttle.per-username.capacity:5}") int usernameCapacity,
+                         @Value("${auth.login.throttle.per-username.per-minute:5}") int usernamePerMinute) {
+        this.byIp = new Buckets(ipCapacity, ipPerMinute);
+        this.byUsername = new Buckets(usernameCapacity, usernamePerMinute);
+    }
+
+    /**
+     * Take one attempt from the buckets of the client IP and of the username.
+     * @return empty when the attempt may proceed, otherwise how long to wait before retrying
+     */
+    public Optional<Duration> tryAcquire(String clientIp, String username) {
+        Optional<Duration> wait = byIp.tryConsume(clientIp);
+        if (wait.isPresent() || username == null) {
+            return wait;
+        }
+        return byUsername.tryConsume(username.toLowerCase());
+    }
+
+    /**
+     * Give back the username attempt of a login that did not fail authentication.
+     */
+    public void refund(String username) {
+        if (username != null) {
+            byUsername.refund(username.toLowerCase());
+        }
+    }
+
+    /**
+     * One bucket per key, forgotten once idle long enough to be full again.
+     */
+    private static class Buckets {
+
+        private final int capacity;
+        private final double tokensPerNano;
+        private final Cache<String, TokenBucket> buckets;
+
+        Buckets(int capacity, int perMinute) {
+            this.capacity = capacity;
+            this.tokensPerNano = perMinute / (double) Duration.ofMinutes(1).toNanos();
+            this.buckets = Caffeine.newBuilder()
+                    .expireAfterAccess(Duration.ofNanos((long) (capacity / tokensPerNano)))
+                    .maximumSize(100_000)
+                    .build();
+        }
+
+        Optional<Duration> tryConsume(String key) {
+            return buckets.get(key, k -> new TokenBucket(capacity)).tryConsume(capacity, tokensPerNano);
+        }
+
+        void refund(String key) {
+            TokenBucket bucket = buckets.getIfPresent(key);
+            if (bucket != null) {
+                bucket.refund(capacity);
+            }
+        }
+    }
+
+    private static class TokenBucket {
+
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int capacity) {
+            this.tokens = capacity;
+        }
+
+        synchronized Optional<Duration> tryConsume(int capacity, double tokensPerNano) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens--;
+                return Optional.empty();
+            }
+            return Optional.of(Duration.ofNanos((long) Math.ceil((1 - tokens) / tokensPerNano)));
+        }
+
+        synchronized void refund(int capacity) {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+}
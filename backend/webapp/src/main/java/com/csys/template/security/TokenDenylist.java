@@ -0,0 +1,203 @@
+package com.csys.template.security;
+
+import com.csys.template.domain.TokenRevocation;
+import com.csys.template.util.JwtUtil;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation list for stateless JWT authentication.
+ * Single tokens are revoked by id (logout), all tokens of a user by issue time (user updated or deleted).
+ * A Bloom filter answers "certainly not revoked" for almost every request without touching the maps;
+ * entries are dropped, and the filter rebuilt, once the tokens they revoke have expired anyway.
+ * Like the signing keys, revocations are shared by the nodes: each one is written to the token_revocation
+ * table, and every node polls the table into its own list, so a token revoked on one node is refused by
+ * the others within jwt.denylist.sync-interval.
+ */
+@Component
+@DependsOn("entityManagerFactory") // The table is created by Hibernate
+public class TokenDenylist {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenDenylist.class);
+
+    private static final String TOKEN_PREFIX = "jti:";
+    private static final String USER_PREFIX = "sub:";
+
+    private final JwtUtil jwtUtil;
+    private final JdbcTemplate jdbcTemplate;
+    private final int expectedEntries;
+
+    /**
+     * Rows are polled by creation time, which is set by the writing node before its transaction commits:
+     * each poll reads again this far back, for rows committed late or written by a node whose clock is behind.
+     */
+    @Value("${jwt.denylist.sync-overlap:PT1M}")
+    private Duration syncOverlap = Duration.ofMinutes(1);
+
+    /**
+     * Revoked token id to the expiration of that token.
+     */
+    private final Map<String, Date> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * Username to the time before which all their tokens are revoked.
+     */
+    private final Map<String, Date> revokedUsers = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter<CharSequence> filter;
+
+    /**
+     * Start of the last poll of the table, 0 before the first.
+     */
+    private long syncedUntil;
+
+    public TokenDenylist(JwtUtil jwtUtil, JdbcTemplate jdbcTemplate,
+                         @Value("${jwt.denylist.expected-entries:10000}") int expectedEntries) {
+        this.jwtUtil = jwtUtil;
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedEntries = expectedEntries;
+        this.filter = newFilter();
+    }
+
+    /**
+     * Load the revocations still in force before the first request is authenticated.
+     */
+    @PostConstruct
+    public void load() {
+        sync();
+    }
+
+    /**
+     * Revoke a single token, e.g. on logout.
+     */
+    public synchronized void revokeToken(Claims claims) {
+        if (claims.getId() == null) {
+            // Issued before tokens carried an id: only user-wide revocation applies
+            revokeUser(claims.getSubject());
+            return;
+        }
+        Date expiration = claims.getExpiration() != null ? claims.getExpiration() : expiryOfTokensIssuedNow();
+        share(TokenRevocation.TOKEN, claims.getId(), null, expiration);
+        applyToken(claims.getId(), expiration);
+        log.debug("Revoked token {} of {}", claims.getId(), claims.getSubject());
+    }
+
+    /**
+     * Revoke every token issued so far to the user, e.g. when the user is updated or deleted.
+     * Called within the transaction changing the user, so the shared revocation commits or rolls back with it.
+     */
+    public synchronized void revokeUser(String username) {
+        // Tokens issued up to this millisecond included are revoked, those issued later (a new login) are not
+        Date revokedBefore = new Date(System.currentTimeMillis() + 1);
+        share(TokenRevocation.USER, username, revokedBefore,
+                new Date(revokedBefore.getTime() + jwtUtil.getTokenLifetime().toMillis()));
+        applyUser(username, revokedBefore);
+        log.info("Revoked all tokens of {}", username);
+    }
+
+    /**
+     * Whether verified claims belong to a revoked token. Lock-free; no map lookup unless the filter matches.
+     */
+    public boolean isRevoked(Claims claims) {
+        BloomFilter<CharSequence> current = filter;
+        String id = claims.getId();
+        if (id != null && current.mightContain(TOKEN_PREFIX + id) && revokedTokens.containsKey(id)) {
+            return true;
+        }
+        String subject = claims.getSubject();
+        if (!current.mightContain(USER_PREFIX + subject)) {
+            return false;
+        }
+        Date revokedBefore = revokedUsers.get(subject);
+        return revokedBefore != null && issuedBefore(claims, revokedBefore);
+    }
+
+    /**
+     * Apply the revocations written by the nodes since the last poll, this one included.
+     */
+    @Scheduled(fixedDelayString = "${jwt.denylist.sync-interval:PT5S}")
+    public synchronized void sync() {
+        long start = System.currentTimeMillis();
+        Timestamp since = new Timestamp(syncedUntil == 0 ? 0 : syncedUntil - syncOverlap.toMillis());
+        jdbcTemplate.query("SELECT kind, revoked, revoked_before, expires_at FROM token_revocation "
+                        + "WHERE created_at >= ? AND expires_at > ?",
+                rs -> {
+                    if (TokenRevocation.USER.equals(rs.getString("kind"))) {
+                        applyUser(rs.getString("revoked"), new Date(rs.getTimestamp("revoked_before").getTime()));
+                    } else {
+                        applyToken(rs.getString("revoked"), new Date(rs.getTimestamp("expires_at").getTime()));
+                    }
+                },
+                since, new Timestamp(start));
+        syncedUntil = start;
+    }
+
+    /**
+     * Forget revocations whose tokens have expired, and rebuild the filter without them.
+     */
+    @Scheduled(fixedDelayString = "${jwt.denylist.purge-interval:PT10M}")
+    public synchronized void purge() {
+        Date now = new Date();
+        Date oldestValidIssue = new Date(now.getTime() - jwtUtil.getTokenLifetime().toMillis());
+        revokedTokens.values().removeIf(expiration -> expiration.before(now));
+        revokedUsers.values().removeIf(revokedBefore -> revokedBefore.before(oldestValidIssue));
+        jdbcTemplate.update("DELETE FROM token_revocation WHERE expires_at < ?", new Timestamp(now.getTime()));
+
+        BloomFilter<CharSequence> rebuilt = newFilter();
+        revokedTokens.keySet().forEach(id -> rebuilt.put(TOKEN_PREFIX + id));
+        revokedUsers.keySet().forEach(username -> rebuilt.put(USER_PREFIX + username));
+        filter = rebuilt;
+    }
+
+    private void share(String kind, String revoked, Date revokedBefore, Date expiresAt) {
+        jdbcTemplate.update("INSERT INTO token_revocation (id, kind, revoked, revoked_before, expires_at, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)",
+                UUID.randomUUID().toString(), kind, revoked,
+                revokedBefore != null ? new Timestamp(revokedBefore.getTime()) : null,
+                new Timestamp(expiresAt.getTime()), new Timestamp(System.currentTimeMillis()));
+    }
+
+    private void applyToken(String id, Date expiration) {
+        revokedTokens.put(id, expiration);
+        filter.put(TOKEN_PREFIX + id);
+    }
+
+    private void applyUser(String username, Date revokedBefore) {
+        revokedUsers.merge(username, revokedBefore, (current, other) -> current.after(other) ? current : other);
+        filter.put(USER_PREFIX + username);
+    }
+
+    private static boolean issuedBefore(Claims claims, Date revokedBefore) {
+        Long issuedAtMillis = claims.get(JwtUtil.ISSUED_AT_MILLIS, Long.class);
+        if (issuedAtMillis != null) {
+            return issuedAtMillis < revokedBefore.getTime();
+        }
+        // Issued before tokens carried it: iat is to the second, so revoke the whole second of the revocation
+        return claims.getIssuedAt() == null || claims.getIssuedAt().before(revokedBefore);
+    }
+
+    private Date expiryOfTokensIssuedNow() {
+        return new Date(System.currentTimeMillis() + jwtUtil.getTokenLifetime().toMillis());
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedEntries, 0.01);
+    }
+}
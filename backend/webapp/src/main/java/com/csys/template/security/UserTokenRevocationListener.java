@@ -0,0 +1,26 @@
+package com.csys.template.security;
+
+import com.csys.template.domain.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * JPA entity listener revoking the tokens of a user who is updated (role, password) or deleted,
+ * so a stateless token never outlives the account state it was issued for.
+ * Instantiated by Spring through Hibernate's bean container.
+ */
+public class UserTokenRevocationListener {
+
+    @Autowired
+    @Lazy // The denylist is created after the entity manager factory, which creates this listener
+    private TokenDenylist tokenDenylist;
+
+    @PostUpdate
+    @PostRemove
+    public void revokeTokens(User user) {
+        tokenDenylist.revokeUser(user.getUsername());
+    }
+}
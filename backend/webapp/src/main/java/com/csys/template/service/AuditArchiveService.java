@@ -0,0 +1,189 @@
+package com.csys.template.service;
+
+import com.csys.template.audit.AuditSegmentStore;
+import com.csys.template.domain.UserAudit;
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.repository.UserAuditRepository;
+import com.csys.template.repository.VisiteurAuditRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Audit retention: the audit tables keep the last audit.archive.hot-months months, the older ones are moved
+ * month by month to the cold segments of {@link AuditSegmentStore}. A month is exported, then deleted from
+ * the table in chunks; a run interrupted in between resumes with the deletion, the segment being complete.
+ */
+@Service
+public class AuditArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditArchiveService.class);
+
+    public static final String VISITEUR_AUDIT = "visiteur_audit";
+    public static final String USER_AUDIT = "user_audit";
+
+    private static final String ARCHIVE_USER = "audit-archive";
+
+    private final VisiteurAuditRepository visiteurAuditRepository;
+    private final UserAuditRepository userAuditRepository;
+    private final AuditSegmentStore auditSegmentStore;
+    private final AuditPayloadMigrationService auditPayloadMigrationService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int hotMonths;
+    private final int chunkSize;
+
+    /**
+     * Chunk of the records of a table for a period, in id order after the given id.
+     */
+    private interface RowChunks<T> {
+        List<T> find(LocalDateTime from, LocalDateTime to, Long afterId, PageRequest page);
+    }
+
+    /**
+     * Chunk of the record ids of a table for a period.
+     */
+    private interface IdChunks {
+        List<Long> find(LocalDateTime from, LocalDateTime to, PageRequest page);
+    }
+
+    public AuditArchiveService(VisiteurAuditRepository visiteurAuditRepository,
+                               UserAuditRepository userAuditRepository,
+                               AuditSegmentStore auditSegmentStore,
+                               AuditPayloadMigrationService auditPayloadMigrationService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${audit.archive.hot-months:6}") int hotMonths,
+                               @Value("${audit.archive.chunk-size:1000}") int chunkSize) {
+        this.visiteurAuditRepository = visiteurAuditRepository;
+        this.userAuditRepository = userAuditRepository;
+        this.auditSegmentStore = auditSegmentStore;
+        this.auditPayloadMigrationService = auditPayloadMigrationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.hotMonths = hotMonths;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * First month kept in the audit tables: the current one and the hot-months - 1 before it.
+     */
+    public YearMonth hotWindowStart() {
+        return YearMonth.now().minusMonths(hotMonths - 1L);
+    }
+
+    /**
+     * Archive every month before the hot window.
+     * @return the number of audit records moved to the cold segments
+     */
+    @Scheduled(cron = "${audit.archive.cron:0 30 2 * * *}")
+    public synchronized int archiveColdMonths() {
+        // Own principal: these writes must not keep the reads of SYSTEM jobs on the primary
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(ARCHIVE_USER, null, Collections.emptyList()));
+        try {
+            YearMonth hotStart = hotWindowStart();
+            int archived = archiveTable(VISITEUR_AUDIT, hotStart, visiteurAuditRepository::findOldestOperationTimestamp,
+                    visiteurAuditRepository::findArchiveChunk, VisiteurAudit::getAuditId,
+                    visiteurAuditRepository::findIdsBetween, visiteurAuditRepository::deleteByAuditIds);
+            archived += archiveTable(USER_AUDIT, hotStart, userAuditRepository::findOldestOperationTimestamp,
+                    userAuditRepository::findArchiveChunk, UserAudit::getAuditId,
+                    userAuditRepository::findIdsBetween, userAuditRepository::deleteByAuditIds);
+            return archived;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private <T> int archiveTable(String table, YearMonth hotStart, Supplier<LocalDateTime> oldest,
+                                 RowChunks<T> chunks, Function<T, Long> id,
+                                 IdChunks ids, Function<Collection<Long>, Integer> delete) {
+        if (auditPayloadMigrationService.isPending(table)) {
+            // Records not converted yet would be archived without their old/new values
+            log.info("Not archiving {} before its audit payloads are converted", table);
+            return 0;
+        }
+        LocalDateTime oldestTimestamp = readOnlyTransactionTemplate.execute(status -> oldest.get());
+        if (oldestTimestamp == null) {
+            return 0;
+        }
+        int archived = 0;
+        for (YearMonth month = YearMonth.from(oldestTimestamp); month.isBefore(hotStart); month = month.plusMonths(1)) {
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            if (!auditSegmentStore.exists(table, month)) {
+                int exported = export(table, month, from, to, chunks, id);
+                if (exported == 0) {
+                    continue;
+                }
+                archived += exported;
+            }
+            int deleted = deleteMonth(from, to, ids, delete);
+            log.info("Archived {} {}: {} records removed from the table", table, month, deleted);
+        }
+        return archived;
+    }
+
+    private <T> int export(String table, YearMonth month, LocalDateTime from, LocalDateTime to,
+                           RowChunks<T> chunks, Function<T, Long> id) {
+        AuditSegmentStore.SegmentWriter segment;
+        try {
+            segment = auditSegmentStore.create(table, month);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create audit segment " + table + " " + month, e);
+        }
+        try {
+            Long afterId = 0L;
+            while (true) {
+                Long after = afterId;
+                List<T> chunk = readOnlyTransactionTemplate.execute(status -> chunks.find(from, to, after, PageRequest.of(0, chunkSize)));
+                for (T row : chunk) {
+                    segment.append(row);
+                }
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                afterId = id.apply(chunk.get(chunk.size() - 1));
+            }
+            if (segment.getRows() == 0) {
+                segment.abort();
+                return 0;
+            }
+            segment.close();
+            return segment.getRows();
+        } catch (IOException | RuntimeException e) {
+            segment.abort();
+            throw new IllegalStateException("Could not export audit segment " + table + " " + month, e);
+        }
+    }
+
+    private int deleteMonth(LocalDateTime from, LocalDateTime to, IdChunks ids, Function<Collection<Long>, Integer> delete) {
+        int deleted = 0;
+        while (true) {
+            Integer chunk = transactionTemplate.execute(status -> {
+                List<Long> chunkIds = ids.find(from, to, PageRequest.of(0, chunkSize));
+                return chunkIds.isEmpty() ? 0 : delete.apply(chunkIds);
+            });
+            if (chunk == null || chunk == 0) {
+                return deleted;
+            }
+            deleted += chunk;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.csys.template.service;
+
+import com.csys.template.audit.AuditPayloadCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Re-encodes the audit old/new values left as JSON text by the former format into the binary columns of
+ * {@link AuditPayloadCodec}. db/sqlserver/audit-payload-binary.sql moves the text to old_values_json /
+ * new_values_json. Once the application is ready, this service converts them in chunks by audit id on a thread
+ * of its own, then drops the text columns. A restarted migration resumes after the rows already converted,
+ * whose text columns are empty.
+ * Until a table is done, its rows not yet converted have no binary old/new values: single record reads take
+ * them from the text columns ({@link #findTextPayloads}), and the table is not archived.
+ */
+@Service
+public class AuditPayloadMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditPayloadMigrationService.class);
+
+    private static final String MIGRATION_USER = "audit-payload-migration";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    /**
+     * Audit tables whose text columns are still there.
+     */
+    private final Set<String> pendingTables = ConcurrentHashMap.newKeySet();
+
+    public AuditPayloadMigrationService(JdbcTemplate jdbcTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${audit.payload.migration-chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Find the audit tables left with text payloads, before the first request reads them.
+     */
+    @PostConstruct
+    public void findPendingTables() {
+        for (String table : Arrays.asList(AuditArchiveService.VISITEUR_AUDIT, AuditArchiveService.USER_AUDIT)) {
+            if (hasTextColumns(table)) {
+                pendingTables.add(table);
+            } else {
+                pendingTables.remove(table);
+            }
+        }
+    }
+
+    /**
+     * Start the conversion in the background: a large table takes a while, and must not hold up the startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startMigration() {
+        if (pendingTables.isEmpty()) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            try {
+                migrateTextPayloads();
+            } catch (RuntimeException e) {
+                log.error("Audit payload migration failed, it resumes at the next startup", e);
+            }
+        }, MIGRATION_USER);
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    /**
+     * Whether the table may still have rows whose old/new values are in the text columns only.
+     */
+    public boolean isPending(String table) {
+        return pendingTables.contains(table);
+    }
+
+    /**
+     * Old and new values of an audit record not converted yet.
+     * @return the text payloads, empty once the table is converted or if the record has none
+     */
+    public Optional<String[]> findTextPayloads(String table, Long auditId) {
+        if (!isPending(table)) {
+            return Optional.empty();
+        }
+        try {
+            return jdbcTemplate.query("SELECT old_values_json, new_values_json FROM " + table + " WHERE audit_id = ?",
+                    (rs, rowNum) -> new String[]{rs.getString("old_values_json"), rs.getString("new_values_json")},
+                    auditId).stream()
+                    .filter(values -> values[0] != null || values[1] != null)
+                    .findFirst();
+        } catch (BadSqlGrammarException e) {
+            // Columns dropped meanwhile: the record has been converted since it was read
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Convert the text payloads of both audit tables.
+     * @return the number of audit records re-encoded
+     */
+    public synchronized int migrateTextPayloads() {
+        // Own principal: these writes must not keep the reads of SYSTEM jobs on the primary
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(MIGRATION_USER, null, Collections.emptyList()));
+        try {
+            return migrateTable(AuditArchiveService.VISITEUR_AUDIT) + migrateTable(AuditArchiveService.USER_AUDIT);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private int migrateTable(String table) {
+        if (!hasTextColumns(table)) {
+            pendingTables.remove(table);
+            return 0;
+        }
+        pendingTables.add(table);
+        log.info("Re-encoding the text audit payloads of {}", table);
+        int migrated = 0;
+        long afterId = 0;
+        while (true) {
+            long after = afterId;
+            List<Object[]> chunk = transactionTemplate.execute(status -> migrateChunk(table, after));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            migrated += chunk.size();
+            afterId = (Long) chunk.get(chunk.size() - 1)[2];
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN old_values_json");
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN new_values_json");
+        pendingTables.remove(table);
+        log.info("Re-encoded {} audit payloads of {}, text columns dropped", migrated, table);
+        return migrated;
+    }
+
+    private List<Object[]> migrateChunk(String table, long afterId) {
+        List<Object[]> rows = jdbcTemplate.query("SELECT audit_id, old_values_json, new_values_json FROM " + table
+                        + " WHERE audit_id > ? AND (old_values_json IS NOT NULL OR new_values_json IS NOT NULL)"
+                        + " ORDER BY audit_id OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY",
+                (rs, rowNum) -> new Object[]{AuditPayloadCodec.encode(rs.getString("old_values_json")),
+                        AuditPayloadCodec.encode(rs.getString("new_values_json")), rs.getLong("audit_id")},
+                afterId, chunkSize);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE " + table + " SET old_values = ?, new_values = ?, "
+                    + "old_values_json = NULL, new_values_json = NULL WHERE audit_id = ?", rows);
+        }
+        return rows;
+    }
+
+    private boolean hasTextColumns(String table) {
+        Long columns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE UPPER(TABLE_NAME) = ? AND UPPER(COLUMN_NAME) IN ('OLD_VALUES_JSON', 'NEW_VALUES_JSON')",
+                Long.class, table.toUpperCase());
+        return columns != null && columns == 2;
+    }
+}
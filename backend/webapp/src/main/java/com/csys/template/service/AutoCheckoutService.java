@@ -0,0 +1,127 @@
+package com.csys.template.service;
+
+import com.csys.template.audit.AuditCounters;
+import com.csys.template.audit.AuditEntityListener;
+import com.csys.template.domain.Visiteur;
+import com.csys.template.domain.VisiteurAudit;
+import com.csys.template.repository.VisiteurAuditRepository;
+import com.csys.template.repository.VisiteurRepository;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service closing the visits of visitors who left without being scanned out.
+ * Visits still open after the configured maximum age are closed in chunks with a set-based UPDATE,
+ * each chunk in its own short transaction, and their audit rows are written as one batch per chunk.
+ */
+@Service
+public class AutoCheckoutService {
+
+    /**
+     * Value of userSortie for visits closed by the auto-checkout rather than by a gate agent.
+     */
+    public static final String SYSTEM_USER = "SYSTEM_AUTO_CHECKOUT";
+
+    private static final Logger log = LoggerFactory.getLogger(AutoCheckoutService.class);
+
+    private final VisiteurRepository visiteurRepository;
+    private final VisiteurAuditRepository visiteurAuditRepository;
+    private final AuditCounters auditCounters;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${visiteur.auto-checkout.max-age:12h}")
+    private Duration maxAge;
+
+    @Value("${visiteur.auto-checkout.chunk-size:500}")
+    private int chunkSize;
+
+    public AutoCheckoutService(VisiteurRepository visiteurRepository,
+                               VisiteurAuditRepository visiteurAuditRepository,
+                               AuditCounters auditCounters,
+                               PlatformTransactionManager transactionManager) {
+        this.visiteurRepository = visiteurRepository;
+        this.visiteurAuditRepository = visiteurAuditRepository;
+        this.auditCounters = auditCounters;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Scheduled end-of-shift run. Disabled unless visiteur.auto-checkout.cron is set.
+     */
+    @Scheduled(cron = "${visiteur.auto-checkout.cron:-}")
+    public void scheduledCheckout() {
+        int closed = checkoutOlderThan(defaultCutoff());
+        log.info("Auto-checkout closed {} visits older than {}", closed, maxAge);
+    }
+
+    /**
+     * Cutoff used when none is given: now minus visiteur.auto-checkout.max-age.
+     */
+    public LocalDateTime defaultCutoff() {
+        return LocalDateTime.now().minus(maxAge);
+    }
+
+    /**
+     * Close every visit still open that started before the cutoff.
+     * @param cutoff entry date/time limit (exclusive)
+     * @return number of visits closed
+     */
+    public int checkoutOlderThan(LocalDateTime cutoff) {
+        Preconditions.checkArgument(cutoff != null, "autoCheckout.CutoffRequired");
+        Preconditions.checkArgument(cutoff.isBefore(LocalDateTime.now()), "autoCheckout.CutoffInFuture");
+        log.debug("Request to auto-checkout visits entered before {}", cutoff);
+
+        int total = 0;
+        while (true) {
+            Integer closed = transactionTemplate.execute(status -> closeChunk(cutoff));
+            if (closed == null || closed == 0) {
+                return total;
+            }
+            total += closed;
+        }
+    }
+
+    /**
+     * Close up to chunkSize visits and audit them. Closed visits drop out of the query, so the next
+     * chunk always starts from the first page.
+     * The chunk is locked before the UPDATE: a gate agent or an overlapping run waits for this transaction
+     * and then finds the visits closed, so every visit of the chunk is closed, audited and counted here only.
+     */
+    private int closeChunk(LocalDateTime cutoff) {
+        List<Long> ids = visiteurRepository.findActiveEnteredBeforeForUpdate(cutoff, PageRequest.of(0, chunkSize)).stream()
+                .map(Visiteur::getId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        int closed = visiteurRepository.closeActiveVisits(ids, LocalDateTime.now(), SYSTEM_USER);
+
+        List<VisiteurAudit> audits = visiteurRepository.findAllById(ids).stream()
+                .map(this::checkoutAudit)
+                .collect(Collectors.toList());
+        visiteurAuditRepository.saveAll(audits);
+        auditCounters.count(audits);
+
+        log.debug("Auto-checkout chunk closed {} visits", closed);
+        return closed;
+    }
+
+    private VisiteurAudit checkoutAudit(Visiteur visiteur) {
+        VisiteurAudit audit = AuditEntityListener.checkoutAudit(visiteur, SYSTEM_USER);
+        audit.setIpAddress("SYSTEM");
+        return audit;
+    }
+}
@@ -0,0 +1,139 @@
+package com.csys.template.service;
+
+import com.csys.template.dto.QueuedCheckInDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only local journal of the write-behind check-in queue, one JSON record per line.
+ * A check-in is journaled (and forced to disk) before it is acknowledged, and marked done once it is
+ * persisted, so check-ins acknowledged before a crash are replayed on the next start.
+ * The file is truncated whenever no journaled check-in is left pending.
+ */
+public class CheckInJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInJournal.class);
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private int pendingCount;
+
+    public CheckInJournal(Path path, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Read the check-ins journaled but never marked done, in journal order.
+     * A torn last line (crash in the middle of a write) is skipped.
+     */
+    public synchronized List<QueuedCheckInDTO> readPending() throws IOException {
+        Map<String, QueuedCheckInDTO> pending = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Record record = objectMapper.readValue(line, Record.class);
+                    if (record.getEntry() != null) {
+                        pending.put(record.getEntry().getProvisionalId(), record.getEntry());
+                    }
+                    if (record.getDone() != null) {
+                        record.getDone().forEach(pending::remove);
+                    }
+                } catch (JsonProcessingException e) {
+                    log.warn("Skipping unreadable check-in journal line: {}", e.getOriginalMessage());
+                }
+            }
+        }
+        pendingCount = pending.size();
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Durably record an accepted check-in.
+     */
+    public synchronized void append(QueuedCheckInDTO entry) throws IOException {
+        Record record = new Record();
+        record.setEntry(entry);
+        write(record);
+        pendingCount++;
+    }
+
+    /**
+     * Record that the given check-ins are no longer pending (persisted or rejected).
+     */
+    public synchronized void markDone(Collection<String> provisionalIds) throws IOException {
+        pendingCount -= provisionalIds.size();
+        if (pendingCount <= 0) {
+            pendingCount = 0;
+            channel.truncate(0);
+            channel.force(true);
+            return;
+        }
+        Record record = new Record();
+        record.setDone(new ArrayList<>(provisionalIds));
+        write(record);
+    }
+
+    private void write(Record record) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(record) + '\n').getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(line);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One journal line: either an accepted check-in or the ids of check-ins that are done.
+     */
+    public static class Record {
+        private QueuedCheckInDTO entry;
+        private List<String> done;
+
+        public QueuedCheckInDTO getEntry() {
+            return entry;
+        }
+
+        public void setEntry(QueuedCheckInDTO entry) {
+            this.entry = entry;
+        }
+
+        public List<String> getDone() {
+            return done;
+        }
+
+        public void setDone(List<String> done) {
+            this.done = done;
+        }
+    }
+}
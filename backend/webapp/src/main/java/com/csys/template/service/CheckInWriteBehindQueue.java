@@ -0,0 +1,328 @@
+package com.csys.template.service;
+
+import com.csys.template.dto.QueuedCheckInDTO;
+import com.csys.template.dto.VisiteurDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind mode for check-ins, to absorb the bursts at shift change.
+ * A check-in is validated on the request thread, journaled to a local file and acknowledged with a
+ * provisional id; a single writer thread persists queued check-ins in batches.
+ * The queue is bounded: once visiteur.write-behind.capacity check-ins are pending, new ones are refused
+ * so the gate can retry or fall back. Pending check-ins are drained on shutdown and replayed from the
+ * journal after a crash.
+ */
+@Service
+public class CheckInWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckInWriteBehindQueue.class);
+
+    private final VisiteurService visiteurService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${visiteur.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${visiteur.write-behind.capacity:1000}")
+    private int capacity;
+
+    @Value("${visiteur.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${visiteur.write-behind.journal:data/checkin-journal.ndjson}")
+    private String journalPath;
+
+    @Value("${visiteur.write-behind.drain-timeout:30s}")
+    private Duration drainTimeout;
+
+    private final BlockingQueue<QueuedCheckInDTO> queue = new LinkedBlockingQueue<>();
+    private final Map<String, QueuedCheckInDTO> pending = new ConcurrentHashMap<>();
+    private final Map<String, String> pendingCins = new ConcurrentHashMap<>();
+    private final Cache<String, VisiteurDTO> persisted = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(10_000)
+            .build();
+    private final Cache<String, String> rejected = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .maximumSize(10_000)
+            .build();
+
+    private Semaphore permits;
+    private CheckInJournal journal;
+    private Thread writer;
+    private volatile boolean accepting;
+    private volatile boolean running;
+
+    public CheckInWriteBehindQueue(VisiteurService visiteurService,
+                                   @Qualifier("auditObjectMapper") ObjectMapper objectMapper) {
+        this.visiteurService = visiteurService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = new CheckInJournal(Paths.get(journalPath), objectMapper);
+
+        // Check-ins acknowledged before a crash go first. They hold permits like queued ones, and may outnumber
+        // them (capacity lowered since): permits then go negative, refusing new check-ins until the backlog drains
+        List<QueuedCheckInDTO> replayed = journal.readPending();
+        permits = new Semaphore(capacity - replayed.size());
+        replayed.forEach(this::track);
+        if (!replayed.isEmpty()) {
+            log.warn("Replaying {} check-ins from journal {}", replayed.size(), journalPath);
+        }
+
+        running = true;
+        accepting = true;
+        writer = new Thread(this::writeLoop, "checkin-writer");
+        writer.start();
+        log.info("Write-behind check-in queue started (capacity {}, batch size {}, journal {})",
+                 capacity, batchSize, journalPath);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Validate a check-in, journal it and queue it for persistence.
+     * @return the acknowledgement carrying the provisional id
+     * @throws IllegalArgumentException when the check-in is invalid (same messages as a direct check-in)
+     * @throws IllegalStateException "visiteur.writeBehind.QueueFull" when the queue is at capacity
+     */
+    public QueuedCheckInDTO enqueue(VisiteurDTO dto, String currentUser) {
+        Preconditions.checkState(enabled && accepting, "visiteur.writeBehind.Unavailable");
+
+        visiteurService.validateCheckIn(dto, currentUser);
+
+        QueuedCheckInDTO entry = new QueuedCheckInDTO(UUID.randomUUID().toString(), dto, currentUser, LocalDateTime.now());
+        String cin = dto.getCin();
+        if (pendingCins.putIfAbsent(cin, entry.getProvisionalId()) != null) {
+            throw new IllegalArgumentException("CIN '" + cin + "' is already in use by an active visiteur (check-in pending). " +
+                "The visiteur must leave before this CIN can be used again.");
+        }
+        if (!permits.tryAcquire()) {
+            pendingCins.remove(cin, entry.getProvisionalId());
+            throw new IllegalStateException("visiteur.writeBehind.QueueFull");
+        }
+
+        try {
+            journal.append(entry);
+        } catch (IOException e) {
+            pendingCins.remove(cin, entry.getProvisionalId());
+            permits.release();
+            throw new IllegalStateException("visiteur.writeBehind.JournalError", e);
+        }
+        track(entry);
+
+        log.debug("Queued check-in {} for CIN {} by {}", entry.getProvisionalId(), cin, currentUser);
+        return entry;
+    }
+
+    /**
+     * Still waiting to be persisted, if it is.
+     */
+    public Optional<QueuedCheckInDTO> findPending(String provisionalId) {
+        return Optional.ofNullable(pending.get(provisionalId));
+    }
+
+    /**
+     * The persisted visiteur, for check-ins persisted in the last minutes.
+     */
+    public Optional<VisiteurDTO> findPersisted(String provisionalId) {
+        return Optional.ofNullable(persisted.getIfPresent(provisionalId));
+    }
+
+    /**
+     * Why the check-in was not persisted, for check-ins rejected in the last minutes.
+     */
+    public Optional<String> findRejection(String provisionalId) {
+        return Optional.ofNullable(rejected.getIfPresent(provisionalId));
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void track(QueuedCheckInDTO entry) {
+        pendingCins.put(entry.getVisiteur().getCin(), entry.getProvisionalId());
+        pending.put(entry.getProvisionalId(), entry);
+        queue.add(entry);
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedCheckInDTO first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<QueuedCheckInDTO> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                try {
+                    writeBatch(batch);
+                } catch (RuntimeException e) {
+                    // Keep the writer alive: the check-ins not completed go back to the queue
+                    log.error("Unexpected failure writing {} queued check-ins, retrying", batch.size(), e);
+                    batch.stream().filter(checkIn -> pending.containsKey(checkIn.getProvisionalId())).forEach(queue::add);
+                    Thread.sleep(1000);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Persist a batch, one transaction per user so the audit rows name the agent who checked the visitor in.
+     * Database outages are retried until shutdown; a check-in that still conflicts on its own is rejected.
+     */
+    private void writeBatch(List<QueuedCheckInDTO> batch) throws InterruptedException {
+        Map<String, List<QueuedCheckInDTO>> byUser = batch.stream()
+                .collect(Collectors.groupingBy(QueuedCheckInDTO::getCurrentUser, LinkedHashMap::new, Collectors.toList()));
+
+        for (List<QueuedCheckInDTO> checkIns : byUser.values()) {
+            while (true) {
+                try {
+                    complete(checkIns, persist(checkIns));
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    // Another instance admitted one of the CINs: isolate it
+                    for (QueuedCheckInDTO checkIn : checkIns) {
+                        if (!writeSingle(checkIn)) {
+                            return;
+                        }
+                    }
+                    break;
+                } catch (RuntimeException e) {
+                    if (!awaitRetry(checkIns.size(), e)) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist a check-in on its own, rejecting it if it still conflicts.
+     * @return false if it could not be persisted before shutdown
+     */
+    private boolean writeSingle(QueuedCheckInDTO checkIn) throws InterruptedException {
+        List<QueuedCheckInDTO> single = Collections.singletonList(checkIn);
+        while (true) {
+            try {
+                complete(single, persist(single));
+                return true;
+            } catch (DataIntegrityViolationException conflict) {
+                complete(single, Collections.singletonList(null));
+                return true;
+            } catch (RuntimeException e) {
+                if (!awaitRetry(1, e)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait before retrying check-ins that could not be persisted, e.g. during a database outage.
+     * @return false on shutdown: the check-ins stay in the journal
+     */
+    private boolean awaitRetry(int count, RuntimeException e) throws InterruptedException {
+        if (!running) {
+            log.error("Could not persist {} queued check-ins before shutdown, they stay in the journal", count, e);
+            return false;
+        }
+        log.error("Could not persist {} queued check-ins, retrying", count, e);
+        Thread.sleep(1000);
+        return true;
+    }
+
+    private List<VisiteurDTO> persist(List<QueuedCheckInDTO> checkIns) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(checkIns.get(0).getCurrentUser(), null, Collections.emptyList()));
+        try {
+            return visiteurService.saveQueuedCheckIns(checkIns);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private void complete(List<QueuedCheckInDTO> checkIns, List<VisiteurDTO> results) {
+        List<String> done = new ArrayList<>();
+        for (int i = 0; i < checkIns.size(); i++) {
+            QueuedCheckInDTO checkIn = checkIns.get(i);
+            VisiteurDTO result = results.get(i);
+            if (result != null) {
+                persisted.put(checkIn.getProvisionalId(), result);
+            } else {
+                rejected.put(checkIn.getProvisionalId(), "CIN '" + checkIn.getVisiteur().getCin()
+                        + "' is already in use by an active visiteur");
+            }
+            pending.remove(checkIn.getProvisionalId());
+            pendingCins.remove(checkIn.getVisiteur().getCin(), checkIn.getProvisionalId());
+            done.add(checkIn.getProvisionalId());
+        }
+        try {
+            journal.markDone(done);
+        } catch (IOException e) {
+            // Replaying them is harmless: persisted check-ins are recognised by CIN, user and entry time
+            log.error("Could not mark {} check-ins done in the journal", done.size(), e);
+        }
+        permits.release(checkIns.size());
+    }
+
+    /**
+     * Stop accepting check-ins and persist the ones still queued.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException, IOException {
+        if (!enabled || writer == null) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        writer.join(drainTimeout.toMillis());
+        if (writer.isAlive()) {
+            log.warn("Write-behind queue not drained within {}, {} check-ins stay in the journal", drainTimeout, pending.size());
+            writer.interrupt();
+        }
+        journal.close();
+    }
+}
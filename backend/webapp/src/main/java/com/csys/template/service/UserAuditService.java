@@ -1,12 +1,15 @@
 package com.csys.template.service;
 
 import com.csys.template.domain.UserAudit;
+import com.csys.template.dto.UserAuditDTO;
+import com.csys.template.factory.UserAuditFactory;
 import com.csys.template.repository.UserAuditRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,6 +20,7 @@ import java.util.Optional;
 /**
  * Service class for managing User audit operations.
  * Provides methods to query and analyze audit history for User entities.
+ * Lists return summaries without old/new values and user agent, single records the full audit row.
  */
 @Service
 @Transactional(readOnly = true)
@@ -27,60 +31,63 @@ public class UserAuditService {
     @Autowired
     private UserAuditRepository userAuditRepository;
 
+    @Autowired
+    private AuditPayloadMigrationService auditPayloadMigrationService;
+
     /**
      * Get all audit records with pagination.
      */
-    public Page<UserAudit> findAll(Pageable pageable) {
+    public Page<UserAuditDTO> findAll(Pageable pageable) {
         log.debug("Request to get all UserAudit records");
-        return userAuditRepository.findAll(pageable);
+        return userAuditRepository.findSummaries(null, pageable);
     }
 
     /**
      * Get audit record by ID.
      */
-    public Optional<UserAudit> findById(Long id) {
+    public Optional<UserAuditDTO> findById(Long id) {
         log.debug("Request to get UserAudit by id: {}", id);
-        return userAuditRepository.findById(id);
+        return userAuditRepository.findById(id).map(UserAuditFactory::entityToDto).map(this::withTextPayloads);
     }
 
     /**
      * Get audit history for a specific user.
      */
-    public Page<UserAudit> findByUserId(Long userId, Pageable pageable) {
+    public Page<UserAuditDTO> findByUserId(Long userId, Pageable pageable) {
         log.debug("Request to get audit history for user: {}", userId);
-        return userAuditRepository.findByUserIdOrderByOperationTimestampDesc(userId, pageable);
+        return userAuditRepository.findSummaries(equal("userId", userId), pageable);
     }
 
     /**
      * Get audit records by operation type.
      */
-    public Page<UserAudit> findByOperationType(String operationType, Pageable pageable) {
+    public Page<UserAuditDTO> findByOperationType(String operationType, Pageable pageable) {
         log.debug("Request to get audit records by operation type: {}", operationType);
-        return userAuditRepository.findByOperationTypeOrderByOperationTimestampDesc(operationType, pageable);
+        return userAuditRepository.findSummaries(equal("operationType", operationType), pageable);
     }
 
     /**
      * Get audit records by performed by user.
      */
-    public Page<UserAudit> findByPerformedBy(String performedBy, Pageable pageable) {
+    public Page<UserAuditDTO> findByPerformedBy(String performedBy, Pageable pageable) {
         log.debug("Request to get audit records performed by: {}", performedBy);
-        return userAuditRepository.findByPerformedByOrderByOperationTimestampDesc(performedBy, pageable);
+        return userAuditRepository.findSummaries(equal("performedBy", performedBy), pageable);
     }
 
     /**
      * Get audit records within a date range.
      */
-    public Page<UserAudit> findByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+    public Page<UserAuditDTO> findByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
         log.debug("Request to get audit records between {} and {}", startDate, endDate);
-        return userAuditRepository.findByOperationTimestampBetween(startDate, endDate, pageable);
+        return userAuditRepository.findSummaries(between(startDate, endDate), pageable);
     }
 
     /**
      * Get audit records for a specific user within a date range.
      */
-    public Page<UserAudit> findByUserIdAndDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+    public Page<UserAuditDTO> findByUserIdAndDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
         log.debug("Request to get audit records for user {} between {} and {}", userId, startDate, endDate);
-        return userAuditRepository.findByUserIdAndOperationTimestampBetween(userId, startDate, endDate, pageable);
+        return userAuditRepository.findSummaries(equal("userId", userId).and(between(startDate, endDate)), pageable);
     }
 
     /**
@@ -94,17 +101,17 @@ public class UserAuditService {
     /**
      * Get the latest audit record for a specific user.
      */
-    public UserAudit findLatestAuditForUser(Long userId) {
+    public UserAuditDTO findLatestAuditForUser(Long userId) {
         log.debug("Request to get latest audit record for user: {}", userId);
-        return userAuditRepository.findTopByUserIdOrderByOperationTimestampDesc(userId);
+        return withTextPayloads(UserAuditFactory.entityToDto(userAuditRepository.findTopByUserIdOrderByOperationTimestampDesc(userId)));
     }
 
     /**
      * Get audit records for multiple users.
      */
-    public Page<UserAudit> findByUserIds(List<Long> userIds, Pageable pageable) {
+    public Page<UserAuditDTO> findByUserIds(List<Long> userIds, Pageable pageable) {
         log.debug("Request to get audit records for users: {}", userIds);
-        return userAuditRepository.findByUserIdInOrderByOperationTimestampDesc(userIds, pageable);
+        return userAuditRepository.findSummaries((root, query, cb) -> root.get("userId").in(userIds), pageable);
     }
 
     /**
@@ -120,6 +127,28 @@ public class UserAuditService {
      */
     public long getAuditCountForUser(Long userId) {
         log.debug("Request to get audit count for user: {}", userId);
-        return userAuditRepository.findByUserIdOrderByOperationTimestampDesc(userId, Pageable.unpaged()).getTotalElements();
+        return userAuditRepository.countByUserId(userId);
+    }
+
+    private static Specification<UserAudit> equal(String attribute, Object value) {
+        return (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    private static Specification<UserAudit> between(LocalDateTime startDate, LocalDateTime endDate) {
+        return (root, query, cb) -> cb.between(root.get("operationTimestamp"), startDate, endDate);
+    }
+
+    /**
+     * Old/new values of a record the payload migration has not converted yet.
+     */
+    private UserAuditDTO withTextPayloads(UserAuditDTO dto) {
+        if (dto != null && dto.getOldValues() == null && dto.getNewValues() == null) {
+            auditPayloadMigrationService.findTextPayloads(AuditArchiveService.USER_AUDIT, dto.getAuditId())
+                    .ifPresent(values -> {
+                        dto.setOldValues(values[0]);
+                        dto.setNewValues(values[1]);
+                    });
+        }
+        return dto;
     }
 }
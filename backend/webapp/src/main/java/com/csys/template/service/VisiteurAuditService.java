@@ -1,23 +1,40 @@
 package com.csys.template.service;
 
+import com.csys.template.audit.AuditSegmentStore;
+import com.csys.template.domain.AuditEventType;
 import com.csys.template.domain.VisiteurAudit;
 import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.domain.VisiteurAuditCount;
+import com.csys.template.dto.VisiteurAuditDTO;
+import com.csys.template.factory.VisiteurAuditFactory;
+import com.csys.template.repository.AuditOperationCountRepository;
+import com.csys.template.repository.VisiteurAuditCountRepository;
 import com.csys.template.repository.VisiteurAuditRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Service class for managing Visiteur audit operations.
  * Provides methods to query and analyze audit history for Visiteur entities.
+ * Lists return summaries without old/new values and user agent, single records the full audit row.
  */
 @Service
 @Transactional(readOnly = true)
@@ -28,76 +45,91 @@ public class VisiteurAuditService {
     @Autowired
     private VisiteurAuditRepository visiteurAuditRepository;
 
+    @Autowired
+    private AuditPayloadMigrationService auditPayloadMigrationService;
+
+    @Autowired
+    private AuditSegmentStore auditSegmentStore;
+
+    @Autowired
+    private VisiteurAuditCountRepository visiteurAuditCountRepository;
+
+    @Autowired
+    private AuditOperationCountRepository auditOperationCountRepository;
+
     /**
      * Get all audit records with pagination.
      */
-    public Page<VisiteurAudit> findAll(Pageable pageable) {
+    public Page<VisiteurAuditDTO> findAll(Pageable pageable) {
         log.debug("Request to get all VisiteurAudit records");
-        return visiteurAuditRepository.findAll(pageable);
+        return visiteurAuditRepository.findSummaries(null, pageable);
     }
 
     /**
      * Get audit record by ID.
      */
-    public Optional<VisiteurAudit> findById(Long id) {
+    public Optional<VisiteurAuditDTO> findById(Long id) {
         log.debug("Request to get VisiteurAudit by id: {}", id);
-        return visiteurAuditRepository.findById(id);
+        return visiteurAuditRepository.findById(id).map(VisiteurAuditFactory::entityToDto).map(this::withTextPayloads);
     }
 
     /**
      * Get audit history for a specific visiteur.
      */
-    public Page<VisiteurAudit> findByVisiteurId(Long visiteurId, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByVisiteurId(Long visiteurId, Pageable pageable) {
         log.debug("Request to get audit history for visiteur: {}", visiteurId);
-        return visiteurAuditRepository.findByVisiteurIdOrderByOperationTimestampDesc(visiteurId, pageable);
+        return visiteurAuditRepository.findSummaries(equal("visiteurId", visiteurId), pageable);
     }
 
     /**
      * Get audit records by operation type.
      */
-    public Page<VisiteurAudit> findByOperationType(String operationType, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByOperationType(String operationType, Pageable pageable) {
         log.debug("Request to get audit records by operation type: {}", operationType);
-        return visiteurAuditRepository.findByOperationTypeOrderByOperationTimestampDesc(operationType, pageable);
+        return visiteurAuditRepository.findSummaries(equal("operationType", operationType), pageable);
     }
 
     /**
      * Get audit records by performed by user.
      */
-    public Page<VisiteurAudit> findByPerformedBy(String performedBy, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByPerformedBy(String performedBy, Pageable pageable) {
         log.debug("Request to get audit records performed by: {}", performedBy);
-        return visiteurAuditRepository.findByPerformedByOrderByOperationTimestampDesc(performedBy, pageable);
+        return visiteurAuditRepository.findSummaries(equal("performedBy", performedBy), pageable);
     }
 
     /**
      * Get audit records by CIN.
      */
-    public Page<VisiteurAudit> findByCin(String cin, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByCin(String cin, Pageable pageable) {
         log.debug("Request to get audit records for CIN: {}", cin);
-        return visiteurAuditRepository.findByCinOrderByOperationTimestampDesc(cin, pageable);
+        return visiteurAuditRepository.findSummaries(equal("cin", cin), pageable);
     }
 
     /**
      * Get audit records by visitor type.
      */
-    public Page<VisiteurAudit> findByTypeVisiteur(TypeVisiteur typeVisiteur, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByTypeVisiteur(TypeVisiteur typeVisiteur, Pageable pageable) {
         log.debug("Request to get audit records for visitor type: {}", typeVisiteur);
-        return visiteurAuditRepository.findByTypeVisiteurOrderByOperationTimestampDesc(typeVisiteur, pageable);
+        return visiteurAuditRepository.findSummaries(equal("typeVisiteur", typeVisiteur), pageable);
     }
 
     /**
      * Get audit records within a date range.
      */
-    public Page<VisiteurAudit> findByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByDateRange(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
         log.debug("Request to get audit records between {} and {}", startDate, endDate);
-        return visiteurAuditRepository.findByOperationTimestampBetween(startDate, endDate, pageable);
+        return withArchive(startDate, endDate, pageable, audit -> true,
+                (hotStart, page) -> visiteurAuditRepository.findSummaries(between(hotStart, endDate), page));
     }
 
     /**
      * Get audit records for a specific visiteur within a date range.
      */
-    public Page<VisiteurAudit> findByVisiteurIdAndDateRange(Long visiteurId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByVisiteurIdAndDateRange(Long visiteurId, LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
         log.debug("Request to get audit records for visiteur {} between {} and {}", visiteurId, startDate, endDate);
-        return visiteurAuditRepository.findByVisiteurIdAndOperationTimestampBetween(visiteurId, startDate, endDate, pageable);
+        return withArchive(startDate, endDate, pageable, audit -> visiteurId.equals(audit.getVisiteurId()),
+                (hotStart, page) -> visiteurAuditRepository.findSummaries(
+                        equal("visiteurId", visiteurId).and(between(hotStart, endDate)), page));
     }
 
     /**
@@ -111,33 +143,35 @@ public class VisiteurAuditService {
     /**
      * Get the latest audit record for a specific visiteur.
      */
-    public VisiteurAudit findLatestAuditForVisiteur(Long visiteurId) {
+    public VisiteurAuditDTO findLatestAuditForVisiteur(Long visiteurId) {
         log.debug("Request to get latest audit record for visiteur: {}", visiteurId);
-        return visiteurAuditRepository.findTopByVisiteurIdOrderByOperationTimestampDesc(visiteurId);
+        return withTextPayloads(VisiteurAuditFactory.entityToDto(visiteurAuditRepository.findTopByVisiteurIdOrderByOperationTimestampDesc(visiteurId)));
     }
 
     /**
      * Get audit records for multiple visiteurs.
      */
-    public Page<VisiteurAudit> findByVisiteurIds(List<Long> visiteurIds, Pageable pageable) {
+    public Page<VisiteurAuditDTO> findByVisiteurIds(List<Long> visiteurIds, Pageable pageable) {
         log.debug("Request to get audit records for visiteurs: {}", visiteurIds);
-        return visiteurAuditRepository.findByVisiteurIdInOrderByOperationTimestampDesc(visiteurIds, pageable);
+        return visiteurAuditRepository.findSummaries((root, query, cb) -> root.get("visiteurId").in(visiteurIds), pageable);
     }
 
     /**
      * Get exit operations (when visiteurs leave).
      */
-    public Page<VisiteurAudit> findExitOperations(Pageable pageable) {
+    public Page<VisiteurAuditDTO> findExitOperations(Pageable pageable) {
         log.debug("Request to get exit operations");
-        return visiteurAuditRepository.findExitOperations(pageable);
+        return visiteurAuditRepository.findSummaries(equal("eventType", AuditEventType.CHECK_OUT), pageable);
     }
 
     /**
-     * Count operations by visitor type and operation type.
+     * Count operations by visitor type and operation type, read from the audit counters.
      */
     public List<Object[]> countOperationsByTypeAndVisitorType() {
         log.debug("Request to count operations by type and visitor type");
-        return visiteurAuditRepository.countOperationsByTypeAndVisitorType();
+        return auditOperationCountRepository.findAll().stream()
+                .map(counter -> new Object[]{counter.getTypeVisiteur(), counter.getOperationType(), counter.getAuditCount()})
+                .collect(Collectors.toList());
     }
 
     /**
@@ -153,6 +187,77 @@ public class VisiteurAuditService {
      */
     public long getAuditCountForVisiteur(Long visiteurId) {
         log.debug("Request to get audit count for visiteur: {}", visiteurId);
-        return visiteurAuditRepository.findByVisiteurIdOrderByOperationTimestampDesc(visiteurId, Pageable.unpaged()).getTotalElements();
+        return visiteurAuditCountRepository.findById(visiteurId).map(VisiteurAuditCount::getAuditCount).orElse(0L);
+    }
+
+    /**
+     * Page of a date range query, newest first, that also reads the archived months the range reaches.
+     * The table holds every record from the first month not archived on, so its rows come before the
+     * archived ones: the page takes table rows first, then continues in the cold segments.
+     * Segments are streamed: every matching archived row is counted, but only the newest ones up to the
+     * end of the page are kept.
+     */
+    private Page<VisiteurAuditDTO> withArchive(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable,
+                                               Predicate<VisiteurAudit> filter,
+                                               BiFunction<LocalDateTime, Pageable, Page<VisiteurAuditDTO>> hotQuery) {
+        YearMonth archivedUntil = auditSegmentStore.archivedUntil(AuditArchiveService.VISITEUR_AUDIT);
+        LocalDateTime hotStart = archivedUntil != null ? archivedUntil.atDay(1).atStartOfDay() : null;
+        if (hotStart == null || !startDate.isBefore(hotStart)) {
+            return hotQuery.apply(startDate, pageable);
+        }
+
+        Page<VisiteurAuditDTO> hot = hotQuery.apply(hotStart, pageable);
+        LocalDateTime coldEnd = endDate.isBefore(hotStart) ? endDate : hotStart.minusNanos(1);
+        long coldOffset = pageable.isPaged() ? Math.max(0, pageable.getOffset() - hot.getTotalElements()) : 0;
+        long kept = pageable.isPaged() ? coldOffset + Math.max(0, pageable.getPageSize() - hot.getNumberOfElements()) : Long.MAX_VALUE;
+
+        // Oldest kept row first, the one to drop when a newer row comes
+        Comparator<VisiteurAudit> byTimestamp = Comparator.comparing(VisiteurAudit::getOperationTimestamp);
+        PriorityQueue<VisiteurAudit> newest = new PriorityQueue<>(byTimestamp);
+        long[] coldTotal = {0};
+        auditSegmentStore.forEachNewestFirst(AuditArchiveService.VISITEUR_AUDIT,
+                YearMonth.from(startDate), YearMonth.from(coldEnd), VisiteurAudit.class, audit -> {
+                    if (audit.getOperationTimestamp().isBefore(startDate) || audit.getOperationTimestamp().isAfter(coldEnd)
+                            || !filter.test(audit)) {
+                        return;
+                    }
+                    coldTotal[0]++;
+                    if (newest.size() < kept) {
+                        newest.add(audit);
+                    } else if (!newest.isEmpty() && byTimestamp.compare(audit, newest.peek()) > 0) {
+                        newest.poll();
+                        newest.add(audit);
+                    }
+                });
+
+        List<VisiteurAuditDTO> content = new ArrayList<>(hot.getContent());
+        newest.stream()
+                .sorted(byTimestamp.reversed())
+                .skip(coldOffset)
+                .map(VisiteurAuditFactory::entityToSummaryDto)
+                .forEach(content::add);
+        return new PageImpl<>(content, pageable, hot.getTotalElements() + coldTotal[0]);
+    }
+
+    private static Specification<VisiteurAudit> equal(String attribute, Object value) {
+        return (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    private static Specification<VisiteurAudit> between(LocalDateTime startDate, LocalDateTime endDate) {
+        return (root, query, cb) -> cb.between(root.get("operationTimestamp"), startDate, endDate);
+    }
+
+    /**
+     * Old/new values of a record the payload migration has not converted yet.
+     */
+    private VisiteurAuditDTO withTextPayloads(VisiteurAuditDTO dto) {
+        if (dto != null && dto.getOldValues() == null && dto.getNewValues() == null) {
+            auditPayloadMigrationService.findTextPayloads(AuditArchiveService.VISITEUR_AUDIT, dto.getAuditId())
+                    .ifPresent(values -> {
+                        dto.setOldValues(values[0]);
+                        dto.setNewValues(values[1]);
+                    });
+        }
+        return dto;
     }
 }
@@ -7,30 +7,43 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.csys.template.audit.AuditEntityListener;
 import com.csys.template.domain.TypeVisiteur;
 import com.csys.template.domain.User;
 import com.csys.template.domain.Visiteur;
 import com.csys.template.dto.AverageVisitDurationChartDTO;
 import com.csys.template.dto.DailyPeakHourDTO;
 import com.csys.template.dto.EntryTimeChartDTO;
+import com.csys.template.dto.QueuedCheckInDTO;
 import com.csys.template.dto.VisitDurationChartDTO;
+import com.csys.template.dto.VisiteurBatchResultDTO;
 import com.csys.template.dto.VisiteurDTO;
 import com.csys.template.dto.VisitorTypeChartDTO;
 import com.csys.template.factory.VisiteurFactory;
 import com.csys.template.repository.UserRepository;
 import com.csys.template.repository.VisiteurRepository;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Striped;
 
 @Service
 @Transactional
@@ -38,12 +51,42 @@ public class VisiteurService {
 
     private final Logger log = LoggerFactory.getLogger(VisiteurService.class);
 
+    /**
+     * fields= value selecting the columns of the visitor table: no observation, details or audit users.
+     */
+    private static final String SUMMARY = "summary";
+    private static final List<String> SUMMARY_FIELDS = List.of(
+            "id", "cin", "nom", "prenom", "matriculeFiscale", "typeVisiteur", "dateEntree", "dateSortie");
+    private static final Set<String> SELECTABLE_FIELDS = Set.of(
+            "id", "cin", "nom", "prenom", "matriculeFiscale", "typeVisiteur", "dateEntree", "dateSortie",
+            "observation", "detaille", "userEntree", "userSortie", "version");
+
+    /**
+     * Largest gap between the entry time of a replayed check-in and the one stored for it:
+     * SQL Server datetime columns round to 1/300 s.
+     */
+    private static final Duration REPLAY_TOLERANCE = Duration.ofMillis(3);
+
     private final VisiteurRepository visiteurRepository;
     private final UserRepository userRepository;
+    private final AuditEntityListener auditEntityListener;
+
+    @Value("${visiteur.batch.max-size:500}")
+    private int maxBatchSize;
+
+    /**
+     * Locks guarding the "no active visit for this CIN" check until the check-in commits.
+     * Striped by CIN hash, so only check-ins of CINs sharing a stripe wait for each other.
+     */
+    private final Striped<Lock> cinLocks;
 
-    public VisiteurService(VisiteurRepository visiteurRepository, UserRepository userRepository) {
+    public VisiteurService(VisiteurRepository visiteurRepository, UserRepository userRepository,
+                           AuditEntityListener auditEntityListener,
+                           @Value("${visiteur.cin-lock.stripes:1024}") int cinLockStripes) {
         this.visiteurRepository = visiteurRepository;
         this.userRepository = userRepository;
+        this.auditEntityListener = auditEntityListener;
+        this.cinLocks = Striped.lock(cinLockStripes);
     }
 
     private void validateUser(String username) {
@@ -88,6 +131,31 @@ public class VisiteurService {
         }
     }
 
+    /**
+     * Hold the lock stripes of the given CINs until the current transaction completes, so a concurrent
+     * check-in of the same CIN only runs its uniqueness check once this one is committed or rolled back.
+     * The unique filtered index on active CINs is the cross-instance guarantee; this avoids hitting it.
+     */
+    private void lockCinsUntilCompletion(Collection<String> cins) {
+        Preconditions.checkState(TransactionSynchronizationManager.isSynchronizationActive(),
+                "CIN locks require an active transaction");
+
+        List<Lock> locks = new ArrayList<>();
+        // bulkGet returns the stripes in a fixed order, so concurrent batches cannot deadlock
+        for (Lock lock : cinLocks.bulkGet(cins)) {
+            lock.lock();
+            locks.add(lock);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                for (int i = locks.size() - 1; i >= 0; i--) {
+                    locks.get(i).unlock();
+                }
+            }
+        });
+    }
+
     @Transactional
     public VisiteurDTO save(VisiteurDTO dto, String currentUser) {
         log.debug("Request to save Visiteur: {} by user: {}", dto, currentUser);
@@ -102,23 +170,153 @@ public class VisiteurService {
         validateMatriculeFiscaleFormat(dto.getMatriculeFiscale());
 
         // Validate CIN uniqueness for active visiteurs
+        lockCinsUntilCompletion(List.of(dto.getCin()));
+        validateCinUniqueness(dto.getCin());
+
+        Visiteur visiteur = newCheckIn(dto, currentUser, LocalDateTime.now());
+
+        log.debug("Setting dateEntree to: {} by user: {}", visiteur.getDateEntree(), currentUser);
+
+        try {
+            visiteur = visiteurRepository.saveAndFlush(visiteur);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance admitted the same CIN in the meantime (unique index on active CINs)
+            throw new IllegalArgumentException("CIN '" + dto.getCin() + "' is already in use by an active visiteur. " +
+                "The visiteur must leave before this CIN can be used again.", e);
+        }
+        return VisiteurFactory.entityToDto(visiteur);
+    }
+
+    /**
+     * Run the validation of {@link #save(VisiteurDTO, String)} without saving, for the write-behind queue
+     * which acknowledges the check-in before it is persisted.
+     */
+    @Transactional(readOnly = true)
+    public void validateCheckIn(VisiteurDTO dto, String currentUser) {
+        validateUser(currentUser);
+        Preconditions.checkArgument(dto != null, "Visiteur cannot be null");
+        validateCinFormat(dto.getCin());
+        validateMatriculeFiscaleFormat(dto.getMatriculeFiscale());
         validateCinUniqueness(dto.getCin());
+    }
+
+    /**
+     * Persist check-ins acknowledged by the write-behind queue, keeping their acknowledged entry time.
+     * CIN uniqueness is checked again under the CIN locks: a check-in whose CIN became active in the
+     * meantime is rejected, unless that active visit is this very check-in (replayed after a crash).
+     * @return the persisted visiteurs, in input order, with null for rejected check-ins
+     */
+    @Transactional
+    public List<VisiteurDTO> saveQueuedCheckIns(List<QueuedCheckInDTO> queued) {
+        log.debug("Request to persist {} queued check-ins", queued.size());
+
+        Set<String> cins = queued.stream().map(q -> q.getVisiteur().getCin()).collect(Collectors.toSet());
+        lockCinsUntilCompletion(cins);
+        Map<String, Visiteur> active = visiteurRepository.findActiveByCinIn(cins).stream()
+                .collect(Collectors.toMap(Visiteur::getCin, v -> v, (a, b) -> a));
+
+        List<Visiteur> results = new ArrayList<>();
+        List<Visiteur> checkIns = new ArrayList<>();
+        for (QueuedCheckInDTO q : queued) {
+            Visiteur existing = active.get(q.getVisiteur().getCin());
+            if (existing == null) {
+                Visiteur visiteur = newCheckIn(q.getVisiteur(), q.getCurrentUser(), q.getDateEntree());
+                active.put(visiteur.getCin(), visiteur);
+                checkIns.add(visiteur);
+                results.add(visiteur);
+            } else if (Objects.equals(existing.getUserEntree(), q.getCurrentUser()) && existing.getDateEntree() != null
+                    && Duration.between(existing.getDateEntree(), q.getDateEntree()).abs().compareTo(REPLAY_TOLERANCE) <= 0) {
+                results.add(existing);
+            } else {
+                log.warn("Queued check-in {} rejected: CIN '{}' is already in use by an active visiteur (ID: {})",
+                         q.getProvisionalId(), existing.getCin(), existing.getId());
+                results.add(null);
+            }
+        }
+
+        visiteurRepository.saveAll(checkIns);
+        visiteurRepository.flush();
+        return results.stream().map(VisiteurFactory::entityToDto).collect(Collectors.toList());
+    }
+
+    /**
+     * Check in several visiteurs in a single transaction (paper sheets entered at the end of the day,
+     * groups of suppliers arriving together).
+     * Each item gets the same validation as {@link #save(VisiteurDTO, String)}, but CIN uniqueness is
+     * checked with one set-based query for the whole batch. Invalid items are reported by index and
+     * skipped; the valid ones are inserted together and flushed as JDBC batches.
+     */
+    @Transactional
+    public VisiteurBatchResultDTO saveBatch(List<VisiteurDTO> dtos, String currentUser) {
+        log.debug("Request to save a batch of {} Visiteurs by user: {}", dtos != null ? dtos.size() : 0, currentUser);
+
+        validateUser(currentUser);
+        Preconditions.checkArgument(dtos != null && !dtos.isEmpty(), "visiteur.batch.Empty");
+        Preconditions.checkArgument(dtos.size() <= maxBatchSize, "visiteur.batch.TooLarge (max " + maxBatchSize + ")");
+
+        Set<String> cins = dtos.stream()
+                .filter(Objects::nonNull)
+                .map(VisiteurDTO::getCin)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        lockCinsUntilCompletion(cins);
+        Set<String> activeCins = cins.isEmpty() ? Set.of() : new HashSet<>(visiteurRepository.findActiveCinsIn(cins));
+
+        VisiteurBatchResultDTO result = new VisiteurBatchResultDTO(dtos.size());
+        Set<String> batchCins = new HashSet<>();
+        List<Visiteur> checkIns = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < dtos.size(); i++) {
+            VisiteurDTO dto = dtos.get(i);
+            try {
+                Preconditions.checkArgument(dto != null, "Batch item cannot be null");
+                validateCinFormat(dto.getCin());
+                validateMatriculeFiscaleFormat(dto.getMatriculeFiscale());
+                if (activeCins.contains(dto.getCin())) {
+                    throw new IllegalArgumentException("CIN '" + dto.getCin() + "' is already in use by an active visiteur. " +
+                        "The visiteur must leave before this CIN can be used again.");
+                }
+                if (!batchCins.add(dto.getCin())) {
+                    throw new IllegalArgumentException("CIN '" + dto.getCin() + "' appears more than once in the batch");
+                }
+                checkIns.add(newCheckIn(dto, currentUser, now));
+            } catch (IllegalArgumentException e) {
+                result.addError(i, dto != null ? dto.getCin() : null, e.getMessage());
+            }
+        }
+
+        if (!checkIns.isEmpty()) {
+            try {
+                List<Visiteur> created = visiteurRepository.saveAll(checkIns);
+                visiteurRepository.flush();
+                result.setCreated(VisiteurFactory.entityToDtos(created));
+            } catch (DataIntegrityViolationException e) {
+                // Another instance admitted one of the CINs in the meantime (unique index on active CINs)
+                throw new IllegalArgumentException("visiteur.batch.Conflict: a CIN of the batch was checked in concurrently", e);
+            }
+        }
+
+        log.debug("Batch check-in by {}: {} created, {} rejected", currentUser,
+                  result.getCreated().size(), result.getErrors().size());
+        return result;
+    }
 
+    private Visiteur newCheckIn(VisiteurDTO dto, String currentUser, LocalDateTime dateEntree) {
         Visiteur visiteur = VisiteurFactory.dtoToEntity(dto);
 
+        // A check-in always creates a new visit
+        visiteur.setId(null);
+        visiteur.setVersion(null);
         // Automatically set dateEntree to current system date/time
-        visiteur.setDateEntree(LocalDateTime.now());
+        visiteur.setDateEntree(dateEntree);
         // Ensure dateSortie is null for new visiteurs
         visiteur.setDateSortie(null);
         // Set the user who added the entry
         visiteur.setUserEntree(currentUser);
         // Ensure userSortie is null for new visiteurs
         visiteur.setUserSortie(null);
-
-        log.debug("Setting dateEntree to: {} by user: {}", visiteur.getDateEntree(), currentUser);
-
-        visiteur = visiteurRepository.save(visiteur);
-        return VisiteurFactory.entityToDto(visiteur);
+        return visiteur;
     }
 
     public VisiteurDTO update(VisiteurDTO dto) {
@@ -127,6 +325,10 @@ public class VisiteurService {
         Preconditions.checkArgument(inBase != null, "visiteur.NotFound");
 
         Visiteur visiteur = VisiteurFactory.dtoToEntity(dto);
+        // Clients that do not send the version they read get last-write-wins, as before
+        if (visiteur.getVersion() == null) {
+            visiteur.setVersion(inBase.getVersion());
+        }
         visiteur = visiteurRepository.save(visiteur);
         return VisiteurFactory.entityToDto(visiteur);
     }
@@ -138,16 +340,16 @@ public class VisiteurService {
         // Validate that the user exists in the database
         validateUser(currentUser);
 
-        Visiteur visiteur = visiteurRepository.findById(visiteurId).orElse(null);
-        Preconditions.checkArgument(visiteur != null, "visiteur.NotFound");
-        Preconditions.checkArgument(visiteur.getDateSortie() == null, "visiteur.AlreadyLeft");
-
-        // Set dateSortie to current system date/time
-        visiteur.setDateSortie(LocalDateTime.now());
-        // Set the user who marked the exit
-        visiteur.setUserSortie(currentUser);
-        visiteur = visiteurRepository.save(visiteur);
+        // Single conditional UPDATE: of two agents scanning the same visitor out, only one matches the row
+        int updated = visiteurRepository.closeVisit(visiteurId, LocalDateTime.now(), currentUser);
+        if (updated == 0) {
+            Preconditions.checkArgument(visiteurRepository.existsById(visiteurId), "visiteur.NotFound");
+            throw new IllegalArgumentException("visiteur.AlreadyLeft");
+        }
 
+        // Bulk updates bypass the entity listener, so the audit row is written here
+        Visiteur visiteur = visiteurRepository.findById(visiteurId).orElseThrow();
+        auditEntityListener.auditBulkCheckout(visiteur);
         return VisiteurFactory.entityToDto(visiteur);
     }
 
@@ -202,6 +404,43 @@ public class VisiteurService {
         }
     }
 
+    /**
+     * Same filter as {@link #findVisiteursByFilter}, selecting only the requested fields from the database.
+     * @param fields comma-separated VisiteurDTO field names, or "summary" for the columns of the visitor table;
+     *               the id is always included so the details can be fetched from GET /api/visiteurs/{id}
+     * @return one map per visiteur, from field name to value
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findVisiteurFieldsByFilter(String filterType, LocalDate dateFrom, LocalDate dateTo,
+                                                                String fields) {
+        List<String> attributes = parseFields(fields);
+        log.debug("Request to get fields {} of Visiteurs with filter type: {}, dateFrom: {}, dateTo: {}",
+                  attributes, filterType, dateFrom, dateTo);
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime startOfDateFrom = ((dateFrom != null) ? dateFrom : today.minusDays(30)).atStartOfDay();
+        LocalDateTime endOfDateTo = ((dateTo != null) ? dateTo : today).atTime(23, 59, 59, 999999999);
+
+        return visiteurRepository.findAttributes(buildFilterSpecification(filterType, startOfDateFrom, endOfDateTo), attributes);
+    }
+
+    private List<String> parseFields(String fields) {
+        if (SUMMARY.equalsIgnoreCase(fields.trim())) {
+            return SUMMARY_FIELDS;
+        }
+        List<String> attributes = new ArrayList<>();
+        attributes.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty() || attributes.contains(name)) {
+                continue;
+            }
+            Preconditions.checkArgument(SELECTABLE_FIELDS.contains(name), "visiteur.UnknownField: %s", name);
+            attributes.add(name);
+        }
+        return attributes;
+    }
+
     private Specification<Visiteur> buildFilterSpecification(String filterType, LocalDateTime startOfDateFrom,
                                                            LocalDateTime endOfDateTo) {
         Specification<Visiteur> spec = Specification.where(null);
@@ -1,39 +1,105 @@
 package com.csys.template.util;
 
+import com.csys.template.security.JwtKeyRing;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
-    // Generate a secure key directly - no more Base64 issues!
-    private final Key signingKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private static final Logger log = LoggerFactory.getLogger(JwtUtil.class);
+
     private static final long EXPIRATION_TIME = 1000 * 60 * 60 * 10; // 10 hours
 
-    private Key getSigningKey() {
-        return signingKey;
+    /**
+     * Issue time to the millisecond: iat is to the second, too coarse to tell the tokens issued just before
+     * a revocation from those issued just after it.
+     */
+    public static final String ISSUED_AT_MILLIS = "iat_ms";
+
+    private final JwtKeyRing keyRing;
+
+    /**
+     * Parsers are immutable and thread-safe: build it once instead of on every request.
+     * The verification key is looked up in the key ring by the kid header of each token.
+     */
+    private final JwtParser parser;
+
+    /**
+     * Verified claims by SHA-256 of the token, each entry expiring with its token.
+     * Null when disabled (jwt.claims-cache.max-entries: 0).
+     */
+    private final Cache<HashCode, VerifiedToken> verifiedClaims;
+
+    public JwtUtil(JwtKeyRing keyRing, @Value("${jwt.claims-cache.max-entries:10000}") long claimsCacheSize) {
+        this.keyRing = keyRing;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return getVerificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+        this.verifiedClaims = claimsCacheSize > 0
+                ? Caffeine.newBuilder().maximumSize(claimsCacheSize).expireAfter(new TokenExpiry()).build()
+                : null;
     }
-    
+
+    private Key getVerificationKey(String kid) {
+        Key key = kid != null ? keyRing.getVerificationKey(kid) : null;
+        if (key == null) {
+            throw new SignatureException("Unknown or retired JWT signing key: " + kid);
+        }
+        return key;
+    }
+
     public String generateToken(UserDetails userDetails) {
-        System.out.println("🎫 Generating JWT token for user: " + userDetails.getUsername());
+        log.debug("Generating JWT token for user: {}", userDetails.getUsername());
 
-        String token = Jwts.builder()
+        JwtKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.getKid())
                 .setSubject(userDetails.getUsername())
                 .claim("role", userDetails.getAuthorities().iterator().next().getAuthority())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(new Date(now))
+                .claim(ISSUED_AT_MILLIS, now)
+                .setExpiration(new Date(now + EXPIRATION_TIME))
+                // HS256 for a secret key, RS256 or ES256 for a private key
+                .signWith(signingKey.getKey())
                 .compact();
+    }
 
-        System.out.println("✅ JWT token generated successfully");
-        return token;
+    /**
+     * How long a token is valid after it is issued.
+     */
+    public Duration getTokenLifetime() {
+        return Duration.ofMillis(EXPIRATION_TIME);
     }
 
     public String extractUsername(String token) {
@@ -44,20 +110,82 @@ public class JwtUtil {
         return extractAllClaims(token).getExpiration();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verify the token and return its claims. The signature is only verified the first time a token is seen;
+     * later requests with the same token are served from the cache until the token expires.
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, badly signed or expired
+     */
+    public Claims extractAllClaims(String token) {
+        if (verifiedClaims == null) {
+            return parser.parseClaimsJws(token).getBody();
+        }
+        HashCode hash = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        VerifiedToken verified = verifiedClaims.get(hash, h -> new VerifiedToken(parser.parseClaimsJws(token)));
+        if (keyRing.getVerificationKey(verified.kid) == null) {
+            // Signed with a key retired or deleted since it was cached
+            verifiedClaims.invalidate(hash);
+            throw new SignatureException("Unknown or retired JWT signing key: " + verified.kid);
+        }
+        Claims claims = verified.claims;
+        if (isExpired(claims)) {
+            // Evicted lazily by the cache, the parser would have refused it
+            throw new ExpiredJwtException(null, claims, "JWT expired at " + claims.getExpiration());
+        }
+        return claims;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static boolean isExpired(Claims claims) {
+        return claims.getExpiration() != null && claims.getExpiration().before(new Date());
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return username.equals(userDetails.getUsername()) && !isTokenExpired(token);
+        return validateClaims(extractAllClaims(token), userDetails);
+    }
+
+    /**
+     * Check claims already verified by {@link #extractAllClaims} against the user they name.
+     */
+    public boolean validateClaims(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isExpired(claims);
+    }
+
+    /**
+     * Claims of a verified token, with the id of the key that signed it.
+     */
+    private static final class VerifiedToken {
+
+        private final String kid;
+        private final Claims claims;
+
+        VerifiedToken(Jws<Claims> jws) {
+            this.kid = jws.getHeader().getKeyId();
+            this.claims = jws.getBody();
+        }
+    }
+
+    /**
+     * Cache entries live until the expiration claim of their token.
+     */
+    private static class TokenExpiry implements Expiry<HashCode, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(HashCode key, VerifiedToken verified, long currentTime) {
+            Claims claims = verified.claims;
+            if (claims.getExpiration() == null) {
+                return TimeUnit.MILLISECONDS.toNanos(EXPIRATION_TIME);
+            }
+            long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(HashCode key, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(HashCode key, VerifiedToken verified, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.csys.template.web.rest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs analytics requests on the dedicated analytics executor and releases the Tomcat worker at once.
+ * Overload (pool and queue full) and timeouts are answered 503 with Retry-After.
+ */
+@Component
+public class AnalyticsBulkhead {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsBulkhead.class);
+
+    private final ThreadPoolTaskExecutor analyticsExecutor;
+    private final Duration timeout;
+
+    public AnalyticsBulkhead(@Qualifier("analyticsExecutor") ThreadPoolTaskExecutor analyticsExecutor,
+                             @Value("${analytics.timeout:30s}") Duration timeout) {
+        this.analyticsExecutor = analyticsExecutor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Submit the request handling to the analytics executor.
+     * @param work the request handling, run on an analytics thread
+     */
+    public DeferredResult<ResponseEntity<?>> submit(Supplier<ResponseEntity<?>> work) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(timeout.toMillis());
+
+        Future<?> task;
+        try {
+            task = analyticsExecutor.submit(() -> {
+                try {
+                    result.setResult(work.get());
+                } catch (RuntimeException e) {
+                    log.error("Error running analytics request", e);
+                    result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body("Error running analytics: " + e.getMessage()));
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Analytics executor saturated, rejecting request");
+            result.setResult(unavailable("Analytics are busy, please retry shortly"));
+            return result;
+        }
+
+        result.onTimeout(() -> {
+            task.cancel(true);
+            result.setResult(unavailable("Analytics request timed out after " + timeout.toSeconds() + "s"));
+        });
+        return result;
+    }
+
+    private ResponseEntity<?> unavailable(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(message);
+    }
+}
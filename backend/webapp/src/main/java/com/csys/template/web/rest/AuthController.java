@@ -1,22 +1,40 @@
 package com.csys.template.web.rest;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
-import com.csys.template.service.CustomUserDetailsService;
+import com.csys.template.security.LoginThrottle;
+import com.csys.template.security.TokenDenylist;
 import com.csys.template.util.JwtUtil;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
 
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
@@ -24,18 +42,76 @@ public class AuthController {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    @Qualifier("loginExecutor")
+    private ThreadPoolTaskExecutor loginExecutor;
 
+    @Value("${auth.login.timeout:10s}")
+    private Duration loginTimeout;
+
+    /**
+     * POST /auth/login : Verify the credentials and issue a token.
+     * Attempts are throttled per client IP and, failed ones, per username (429 with Retry-After), and the BCrypt
+     * check runs on the bounded login executor (503 when it is saturated), so login bursts cannot starve gate traffic.
+     */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest request) {
-        authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-        );
+    public DeferredResult<ResponseEntity<?>> login(@RequestBody AuthRequest request, HttpServletRequest httpRequest) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(loginTimeout.toMillis(),
+                () -> unavailable("Login timed out, please retry"));
+
+        Optional<Duration> retryAfter = loginThrottle.tryAcquire(httpRequest.getRemoteAddr(), request.getUsername());
+        if (retryAfter.isPresent()) {
+            log.warn("Throttling login attempt for {} from {}", request.getUsername(), httpRequest.getRemoteAddr());
+            result.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.get().toSeconds())))
+                    .body(Collections.singletonMap("message", "Too many login attempts, please retry later")));
+            return result;
+        }
+
+        try {
+            loginExecutor.execute(() -> {
+                try {
+                    Authentication authentication = authenticationManager.authenticate(
+                        new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
+                    );
+                    // The principal is the user loaded for the password check: no second lookup
+                    final String jwt = jwtUtil.generateToken((UserDetails) authentication.getPrincipal());
+                    loginThrottle.refund(request.getUsername());
+                    result.setResult(ResponseEntity.ok(new AuthResponse(jwt)));
+                } catch (AuthenticationException e) {
+                    result.setResult(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+                } catch (RuntimeException e) {
+                    log.error("Error during login", e);
+                    loginThrottle.refund(request.getUsername());
+                    result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                }
+            });
+        } catch (TaskRejectedException e) {
+            log.warn("Login executor saturated, rejecting login attempt");
+            loginThrottle.refund(request.getUsername());
+            result.setResult(unavailable("Too many logins in progress, please retry shortly"));
+        }
+        return result;
+    }
 
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(request.getUsername());
-        final String jwt = jwtUtil.generateToken(userDetails);
+    private ResponseEntity<?> unavailable(String message) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(Collections.singletonMap("message", message));
+    }
 
-        return ResponseEntity.ok(new AuthResponse(jwt));
+    /**
+     * POST /auth/logout : Revoke the token of the request, which is refused from then on.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader("Authorization") String authorization) {
+        tokenDenylist.revokeToken(jwtUtil.extractAllClaims(authorization.substring("Bearer ".length())));
+        return ResponseEntity.noContent().build();
     }
 
    
@@ -53,7 +129,6 @@ public class AuthController {
     }
 
     @Data
-    @AllArgsConstructor
     public static class AuthResponse {
         private String jwt;
 
@@ -1,5 +1,6 @@
 package com.csys.template.web.rest;
 
+import com.csys.template.datasource.ReportingWorkload;
 import com.csys.template.dto.ChatbotRequestDTO;
 import com.csys.template.dto.ChatbotResponseDTO;
 import com.csys.template.service.ChatbotService;
@@ -11,6 +12,7 @@ import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.UUID;
 
@@ -23,17 +25,20 @@ public class ChatbotController {
 
     private final ChatbotService chatbotService;
     private final SimpMessagingTemplate messagingTemplate;
+    private final AnalyticsBulkhead analyticsBulkhead;
 
-    public ChatbotController(ChatbotService chatbotService, SimpMessagingTemplate messagingTemplate) {
+    public ChatbotController(ChatbotService chatbotService, SimpMessagingTemplate messagingTemplate,
+                             AnalyticsBulkhead analyticsBulkhead) {
         this.chatbotService = chatbotService;
         this.messagingTemplate = messagingTemplate;
+        this.analyticsBulkhead = analyticsBulkhead;
     }
 
     /**
-     * HTTP endpoint for chatbot queries
+     * HTTP endpoint for chatbot queries, answered on the analytics executor (503 when it is saturated)
      */
     @PostMapping("/query")
-    public ResponseEntity<ChatbotResponseDTO> processQuery(@RequestBody ChatbotRequestDTO request) {
+    public DeferredResult<ResponseEntity<?>> processQuery(@RequestBody ChatbotRequestDTO request) {
         log.info("Received chatbot query: {}", request.getMessage());
         
         // Generate session ID if not provided
@@ -41,19 +46,21 @@ public class ChatbotController {
             request.setSessionId(UUID.randomUUID().toString());
         }
         
-        try {
-            ChatbotResponseDTO response = chatbotService.processQuery(request);
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error processing chatbot query", e);
-            return ResponseEntity.badRequest()
-                .body(ChatbotResponseDTO.builder()
-                    .response("Une erreur s'est produite lors du traitement de votre demande.")
-                    .sessionId(request.getSessionId())
-                    .queryType("ERROR")
-                    .confidence("LOW")
-                    .build());
-        }
+        return analyticsBulkhead.submit(() -> {
+            try {
+                ChatbotResponseDTO response = chatbotService.processQuery(request);
+                return ResponseEntity.ok(response);
+            } catch (Exception e) {
+                log.error("Error processing chatbot query", e);
+                return ResponseEntity.badRequest()
+                    .body(ChatbotResponseDTO.builder()
+                        .response("Une erreur s'est produite lors du traitement de votre demande.")
+                        .sessionId(request.getSessionId())
+                        .queryType("ERROR")
+                        .confidence("LOW")
+                        .build());
+            }
+        });
     }
 
     /**
@@ -70,7 +77,7 @@ public class ChatbotController {
         }
         
         try {
-            return chatbotService.processQuery(request);
+            return ReportingWorkload.call(() -> chatbotService.processQuery(request));
         } catch (Exception e) {
             log.error("Error processing WebSocket message", e);
             return ChatbotResponseDTO.builder()
@@ -94,7 +101,7 @@ public class ChatbotController {
         }
         
         try {
-            ChatbotResponseDTO response = chatbotService.processQuery(request);
+            ChatbotResponseDTO response = ReportingWorkload.call(() -> chatbotService.processQuery(request));
             messagingTemplate.convertAndSendToUser(
                 request.getSessionId(),
                 "/queue/chatbot",
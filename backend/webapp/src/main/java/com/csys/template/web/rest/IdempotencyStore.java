@@ -0,0 +1,132 @@
+package com.csys.template.web.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, TTL-evicted store of responses keyed by the client's Idempotency-Key header.
+ * A retried request with the same key (same user and endpoint) gets the first response back
+ * without running the service again; a retry arriving while the first attempt is still running
+ * waits for its result. Only successful responses are kept, so a failed attempt can be retried.
+ * A key is bound to a hash of the request it was first used with: reusing it for a different request
+ * is refused with 422 Unprocessable Entity rather than answered with the other request's response.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private final Cache<String, Attempt> responses;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * First attempt of a key: the hash of its request and its response, once known.
+     */
+    private static final class Attempt {
+        private final byte[] requestHash;
+        private final CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+
+        private Attempt(byte[] requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    public IdempotencyStore(@Value("${idempotency.ttl:10m}") Duration ttl,
+                            @Value("${idempotency.max-entries:10000}") long maxEntries,
+                            @Qualifier("auditObjectMapper") ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    /**
+     * Run the action once per idempotency key, or return the response of the first run.
+     * @param idempotencyKey value of the Idempotency-Key header, null to always run the action
+     * @param endpoint method and path the key applies to
+     * @param request body and parameters of the request, which a retry must repeat unchanged
+     * @param action the request handling
+     */
+    public ResponseEntity<?> execute(String idempotencyKey, String endpoint, Object request, Supplier<ResponseEntity<?>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+
+        String key = currentUser() + ' ' + endpoint + ' ' + idempotencyKey;
+        byte[] requestHash = hash(request);
+        Attempt attempt = new Attempt(requestHash);
+        Attempt first;
+        while ((first = responses.asMap().putIfAbsent(key, attempt)) != null) {
+            if (!Arrays.equals(first.requestHash, requestHash)) {
+                log.debug("Idempotency key {} on {} reused for a different request", idempotencyKey, endpoint);
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                        .body("Idempotency-Key already used for a different request");
+            }
+            try {
+                ResponseEntity<?> response = first.response.join();
+                log.debug("Replaying response for idempotency key {} on {}", idempotencyKey, endpoint);
+                return replayed(response);
+            } catch (CompletionException e) {
+                // The first attempt threw: nothing to replay, this retry runs the action itself
+                responses.asMap().remove(key, first);
+            }
+        }
+
+        try {
+            ResponseEntity<?> response = action.get();
+            if (!response.getStatusCode().is2xxSuccessful()) {
+                responses.asMap().remove(key, attempt);
+            }
+            attempt.response.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            responses.asMap().remove(key, attempt);
+            attempt.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private byte[] hash(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not hash the request of an idempotency key", e);
+        }
+    }
+
+    private ResponseEntity<?> replayed(ResponseEntity<?> response) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.set(REPLAYED_HEADER, "true");
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    private String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+}
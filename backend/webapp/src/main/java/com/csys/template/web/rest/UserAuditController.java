@@ -1,6 +1,6 @@
 package com.csys.template.web.rest;
 
-import com.csys.template.domain.UserAudit;
+import com.csys.template.dto.UserAuditDTO;
 import com.csys.template.service.UserAuditService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,9 +32,9 @@ public class UserAuditController {
      * GET /api/audit/users : Get all user audit records with pagination.
      */
     @GetMapping
-    public ResponseEntity<Page<UserAudit>> getAllUserAudits(Pageable pageable) {
+    public ResponseEntity<Page<UserAuditDTO>> getAllUserAudits(Pageable pageable) {
         log.debug("REST request to get all UserAudit records");
-        Page<UserAudit> page = userAuditService.findAll(pageable);
+        Page<UserAuditDTO> page = userAuditService.findAll(pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -42,9 +42,9 @@ public class UserAuditController {
      * GET /api/audit/users/{id} : Get a specific user audit record.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<UserAudit> getUserAudit(@PathVariable Long id) {
+    public ResponseEntity<UserAuditDTO> getUserAudit(@PathVariable Long id) {
         log.debug("REST request to get UserAudit : {}", id);
-        Optional<UserAudit> userAudit = userAuditService.findById(id);
+        Optional<UserAuditDTO> userAudit = userAuditService.findById(id);
         return userAudit.map(ResponseEntity::ok)
                        .orElse(ResponseEntity.notFound().build());
     }
@@ -53,9 +53,9 @@ public class UserAuditController {
      * GET /api/audit/users/user/{userId} : Get audit history for a specific user.
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Page<UserAudit>> getUserAuditHistory(@PathVariable Long userId, Pageable pageable) {
+    public ResponseEntity<Page<UserAuditDTO>> getUserAuditHistory(@PathVariable Long userId, Pageable pageable) {
         log.debug("REST request to get audit history for user : {}", userId);
-        Page<UserAudit> page = userAuditService.findByUserId(userId, pageable);
+        Page<UserAuditDTO> page = userAuditService.findByUserId(userId, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -63,9 +63,9 @@ public class UserAuditController {
      * GET /api/audit/users/operation/{operationType} : Get audit records by operation type.
      */
     @GetMapping("/operation/{operationType}")
-    public ResponseEntity<Page<UserAudit>> getUserAuditsByOperation(@PathVariable String operationType, Pageable pageable) {
+    public ResponseEntity<Page<UserAuditDTO>> getUserAuditsByOperation(@PathVariable String operationType, Pageable pageable) {
         log.debug("REST request to get audit records by operation type : {}", operationType);
-        Page<UserAudit> page = userAuditService.findByOperationType(operationType, pageable);
+        Page<UserAuditDTO> page = userAuditService.findByOperationType(operationType, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -73,9 +73,9 @@ public class UserAuditController {
      * GET /api/audit/users/performed-by/{performedBy} : Get audit records by performed by user.
      */
     @GetMapping("/performed-by/{performedBy}")
-    public ResponseEntity<Page<UserAudit>> getUserAuditsByPerformedBy(@PathVariable String performedBy, Pageable pageable) {
+    public ResponseEntity<Page<UserAuditDTO>> getUserAuditsByPerformedBy(@PathVariable String performedBy, Pageable pageable) {
         log.debug("REST request to get audit records performed by : {}", performedBy);
-        Page<UserAudit> page = userAuditService.findByPerformedBy(performedBy, pageable);
+        Page<UserAuditDTO> page = userAuditService.findByPerformedBy(performedBy, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -83,12 +83,12 @@ public class UserAuditController {
      * GET /api/audit/users/date-range : Get audit records within a date range.
      */
     @GetMapping("/date-range")
-    public ResponseEntity<Page<UserAudit>> getUserAuditsByDateRange(
+    public ResponseEntity<Page<UserAuditDTO>> getUserAuditsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             Pageable pageable) {
         log.debug("REST request to get audit records between {} and {}", startDate, endDate);
-        Page<UserAudit> page = userAuditService.findByDateRange(startDate, endDate, pageable);
+        Page<UserAuditDTO> page = userAuditService.findByDateRange(startDate, endDate, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -96,13 +96,13 @@ public class UserAuditController {
      * GET /api/audit/users/user/{userId}/date-range : Get audit records for a specific user within a date range.
      */
     @GetMapping("/user/{userId}/date-range")
-    public ResponseEntity<Page<UserAudit>> getUserAuditsByUserAndDateRange(
+    public ResponseEntity<Page<UserAuditDTO>> getUserAuditsByUserAndDateRange(
             @PathVariable Long userId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             Pageable pageable) {
         log.debug("REST request to get audit records for user {} between {} and {}", userId, startDate, endDate);
-        Page<UserAudit> page = userAuditService.findByUserIdAndDateRange(userId, startDate, endDate, pageable);
+        Page<UserAuditDTO> page = userAuditService.findByUserIdAndDateRange(userId, startDate, endDate, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -120,9 +120,9 @@ public class UserAuditController {
      * GET /api/audit/users/user/{userId}/latest : Get the latest audit record for a specific user.
      */
     @GetMapping("/user/{userId}/latest")
-    public ResponseEntity<UserAudit> getLatestUserAudit(@PathVariable Long userId) {
+    public ResponseEntity<UserAuditDTO> getLatestUserAudit(@PathVariable Long userId) {
         log.debug("REST request to get latest audit record for user : {}", userId);
-        UserAudit latestAudit = userAuditService.findLatestAuditForUser(userId);
+        UserAuditDTO latestAudit = userAuditService.findLatestAuditForUser(userId);
         return latestAudit != null ? ResponseEntity.ok(latestAudit) : ResponseEntity.notFound().build();
     }
 
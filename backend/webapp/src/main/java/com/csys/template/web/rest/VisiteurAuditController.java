@@ -1,7 +1,7 @@
 package com.csys.template.web.rest;
 
-import com.csys.template.domain.VisiteurAudit;
 import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.VisiteurAuditDTO;
 import com.csys.template.service.VisiteurAuditService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,9 +33,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs : Get all visiteur audit records with pagination.
      */
     @GetMapping
-    public ResponseEntity<Page<VisiteurAudit>> getAllVisiteurAudits(Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getAllVisiteurAudits(Pageable pageable) {
         log.debug("REST request to get all VisiteurAudit records");
-        Page<VisiteurAudit> page = visiteurAuditService.findAll(pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findAll(pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -43,9 +43,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/{id} : Get a specific visiteur audit record.
      */
     @GetMapping("/{id}")
-    public ResponseEntity<VisiteurAudit> getVisiteurAudit(@PathVariable Long id) {
+    public ResponseEntity<VisiteurAuditDTO> getVisiteurAudit(@PathVariable Long id) {
         log.debug("REST request to get VisiteurAudit : {}", id);
-        Optional<VisiteurAudit> visiteurAudit = visiteurAuditService.findById(id);
+        Optional<VisiteurAuditDTO> visiteurAudit = visiteurAuditService.findById(id);
         return visiteurAudit.map(ResponseEntity::ok)
                            .orElse(ResponseEntity.notFound().build());
     }
@@ -54,9 +54,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/visiteur/{visiteurId} : Get audit history for a specific visiteur.
      */
     @GetMapping("/visiteur/{visiteurId}")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditHistory(@PathVariable Long visiteurId, Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditHistory(@PathVariable Long visiteurId, Pageable pageable) {
         log.debug("REST request to get audit history for visiteur : {}", visiteurId);
-        Page<VisiteurAudit> page = visiteurAuditService.findByVisiteurId(visiteurId, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByVisiteurId(visiteurId, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -64,9 +64,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/operation/{operationType} : Get audit records by operation type.
      */
     @GetMapping("/operation/{operationType}")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditsByOperation(@PathVariable String operationType, Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditsByOperation(@PathVariable String operationType, Pageable pageable) {
         log.debug("REST request to get audit records by operation type : {}", operationType);
-        Page<VisiteurAudit> page = visiteurAuditService.findByOperationType(operationType, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByOperationType(operationType, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -74,9 +74,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/performed-by/{performedBy} : Get audit records by performed by user.
      */
     @GetMapping("/performed-by/{performedBy}")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditsByPerformedBy(@PathVariable String performedBy, Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditsByPerformedBy(@PathVariable String performedBy, Pageable pageable) {
         log.debug("REST request to get audit records performed by : {}", performedBy);
-        Page<VisiteurAudit> page = visiteurAuditService.findByPerformedBy(performedBy, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByPerformedBy(performedBy, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -84,9 +84,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/cin/{cin} : Get audit records by CIN.
      */
     @GetMapping("/cin/{cin}")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditsByCin(@PathVariable String cin, Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditsByCin(@PathVariable String cin, Pageable pageable) {
         log.debug("REST request to get audit records for CIN : {}", cin);
-        Page<VisiteurAudit> page = visiteurAuditService.findByCin(cin, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByCin(cin, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -94,9 +94,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/type/{typeVisiteur} : Get audit records by visitor type.
      */
     @GetMapping("/type/{typeVisiteur}")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditsByType(@PathVariable TypeVisiteur typeVisiteur, Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditsByType(@PathVariable TypeVisiteur typeVisiteur, Pageable pageable) {
         log.debug("REST request to get audit records for visitor type : {}", typeVisiteur);
-        Page<VisiteurAudit> page = visiteurAuditService.findByTypeVisiteur(typeVisiteur, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByTypeVisiteur(typeVisiteur, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -104,12 +104,12 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/date-range : Get audit records within a date range.
      */
     @GetMapping("/date-range")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditsByDateRange(
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditsByDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             Pageable pageable) {
         log.debug("REST request to get audit records between {} and {}", startDate, endDate);
-        Page<VisiteurAudit> page = visiteurAuditService.findByDateRange(startDate, endDate, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByDateRange(startDate, endDate, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -117,13 +117,13 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/visiteur/{visiteurId}/date-range : Get audit records for a specific visiteur within a date range.
      */
     @GetMapping("/visiteur/{visiteurId}/date-range")
-    public ResponseEntity<Page<VisiteurAudit>> getVisiteurAuditsByVisiteurAndDateRange(
+    public ResponseEntity<Page<VisiteurAuditDTO>> getVisiteurAuditsByVisiteurAndDateRange(
             @PathVariable Long visiteurId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             Pageable pageable) {
         log.debug("REST request to get audit records for visiteur {} between {} and {}", visiteurId, startDate, endDate);
-        Page<VisiteurAudit> page = visiteurAuditService.findByVisiteurIdAndDateRange(visiteurId, startDate, endDate, pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByVisiteurIdAndDateRange(visiteurId, startDate, endDate, pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -141,9 +141,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/visiteur/{visiteurId}/latest : Get the latest audit record for a specific visiteur.
      */
     @GetMapping("/visiteur/{visiteurId}/latest")
-    public ResponseEntity<VisiteurAudit> getLatestVisiteurAudit(@PathVariable Long visiteurId) {
+    public ResponseEntity<VisiteurAuditDTO> getLatestVisiteurAudit(@PathVariable Long visiteurId) {
         log.debug("REST request to get latest audit record for visiteur : {}", visiteurId);
-        VisiteurAudit latestAudit = visiteurAuditService.findLatestAuditForVisiteur(visiteurId);
+        VisiteurAuditDTO latestAudit = visiteurAuditService.findLatestAuditForVisiteur(visiteurId);
         return latestAudit != null ? ResponseEntity.ok(latestAudit) : ResponseEntity.notFound().build();
     }
 
@@ -151,9 +151,9 @@ public class VisiteurAuditController {
      * GET /api/audit/visiteurs/exits : Get exit operations (when visiteurs leave).
      */
     @GetMapping("/exits")
-    public ResponseEntity<Page<VisiteurAudit>> getExitOperations(Pageable pageable) {
+    public ResponseEntity<Page<VisiteurAuditDTO>> getExitOperations(Pageable pageable) {
         log.debug("REST request to get exit operations");
-        Page<VisiteurAudit> page = visiteurAuditService.findExitOperations(pageable);
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findExitOperations(pageable);
         return ResponseEntity.ok(page);
     }
 
@@ -1,9 +1,17 @@
 package com.csys.template.web.rest;
 
+import java.net.URI;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -13,17 +21,18 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import com.csys.template.domain.TypeVisiteur;
-import com.csys.template.dto.AverageVisitDurationChartDTO;
-import com.csys.template.dto.DailyPeakHourDTO;
-import com.csys.template.dto.EntryTimeChartDTO;
-import com.csys.template.dto.VisitDurationChartDTO;
+import com.csys.template.dto.QueuedCheckInDTO;
+import com.csys.template.dto.VisiteurBatchResultDTO;
 import com.csys.template.dto.VisiteurDTO;
-import com.csys.template.dto.VisitorTypeChartDTO;
+import com.csys.template.service.AutoCheckoutService;
+import com.csys.template.service.CheckInWriteBehindQueue;
 import com.csys.template.service.VisiteurService;
 
 @RestController
@@ -31,10 +40,20 @@ import com.csys.template.service.VisiteurService;
 public class VisiteurController {
 
     private final VisiteurService visiteurService;
+    private final AutoCheckoutService autoCheckoutService;
+    private final IdempotencyStore idempotencyStore;
+    private final CheckInWriteBehindQueue checkInQueue;
+    private final AnalyticsBulkhead analyticsBulkhead;
 
     // Constructor for dependency injection
-    public VisiteurController(VisiteurService visiteurService) {
+    public VisiteurController(VisiteurService visiteurService, AutoCheckoutService autoCheckoutService,
+                              IdempotencyStore idempotencyStore, CheckInWriteBehindQueue checkInQueue,
+                              AnalyticsBulkhead analyticsBulkhead) {
         this.visiteurService = visiteurService;
+        this.autoCheckoutService = autoCheckoutService;
+        this.idempotencyStore = idempotencyStore;
+        this.checkInQueue = checkInQueue;
+        this.analyticsBulkhead = analyticsBulkhead;
     }
 
     private String getAuthenticatedUsername() {
@@ -55,11 +74,25 @@ public class VisiteurController {
         }
     }
 
+    /**
+     * GET /api/visiteurs : Visiteurs entered or left in the date range.
+     * With fields=summary (or a comma-separated list of fields) only those fields are selected and returned;
+     * the full visiteur is then fetched from GET /api/visiteurs/{id}.
+     */
     @GetMapping
-    public ResponseEntity<List<VisiteurDTO>> getAllVisiteurs(
+    public ResponseEntity<?> getAllVisiteurs(
             @RequestParam(defaultValue = "tous") String filterType,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo,
+            @RequestParam(required = false) String fields) {
+
+        if (fields != null) {
+            try {
+                return ResponseEntity.ok(visiteurService.findVisiteurFieldsByFilter(filterType, dateFrom, dateTo, fields));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(e.getMessage());
+            }
+        }
 
         // Get filtered results based on radio button selection
         List<VisiteurDTO> visiteurs = visiteurService.findVisiteursByFilter(filterType, dateFrom, dateTo);
@@ -95,9 +128,19 @@ public class VisiteurController {
         return ResponseEntity.ok("Current system time: " + java.time.LocalDateTime.now());
     }
 
+    /**
+     * PUT /api/visiteurs/{id}/sortie : Mark the exit of a visiteur.
+     * A retry carrying the same Idempotency-Key gets the first response back.
+     */
     @PutMapping("/{id}/sortie")
     public ResponseEntity<?> markVisiteurSortie(@PathVariable Long id,
-                                               @RequestParam(required = false) String currentUser) {
+                                               @RequestParam(required = false) String currentUser,
+                                               @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "PUT /api/visiteurs/" + id + "/sortie", currentUser,
+                () -> doMarkVisiteurSortie(id, currentUser));
+    }
+
+    private ResponseEntity<?> doMarkVisiteurSortie(Long id, String currentUser) {
         try {
             // If currentUser is not provided, use the authenticated user
             if (currentUser == null) {
@@ -136,15 +179,69 @@ public class VisiteurController {
         }
     }
 
+    /**
+     * POST /api/visiteurs/auto-checkout : Close every visit still open that started before the cutoff
+     * (default: now minus visiteur.auto-checkout.max-age). Restricted to ROLE_ADMIN.
+     */
+    @PostMapping("/auto-checkout")
+    public ResponseEntity<?> autoCheckout(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime cutoff) {
+        try {
+            LocalDateTime effectiveCutoff = cutoff != null ? cutoff : autoCheckoutService.defaultCutoff();
+            int closed = autoCheckoutService.checkoutOlderThan(effectiveCutoff);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("cutoff", effectiveCutoff);
+            body.put("closed", closed);
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error running auto-checkout: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<VisiteurDTO> getVisiteurById(@PathVariable Long id) {
         VisiteurDTO dto = visiteurService.findOne(id);
         return dto != null ? ResponseEntity.ok(dto) : ResponseEntity.notFound().build();
     }
 
+    /**
+     * POST /api/visiteurs/createvis : Check in a visiteur.
+     * A retry carrying the same Idempotency-Key gets the first response back.
+     * In write-behind mode the check-in is acknowledged with 202 Accepted and a provisional id,
+     * and persisted shortly after; its outcome is available from GET /api/visiteurs/checkins/{provisionalId}.
+     */
     @PostMapping("/createvis")
     public ResponseEntity<?> createVisiteur(@RequestBody VisiteurDTO dto,
-                                           @RequestParam(required = false) String currentUser) {
+                                           @RequestParam(required = false) String currentUser,
+                                           @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        return idempotencyStore.execute(idempotencyKey, "POST /api/visiteurs/createvis", Arrays.asList(dto, currentUser),
+                () -> doCreateVisiteur(dto, currentUser));
+    }
+
+    /**
+     * GET /api/visiteurs/checkins/{provisionalId} : Outcome of a check-in acknowledged in write-behind mode.
+     * 202 while queued, 200 with the visiteur once persisted, 409 if it was rejected, 404 if unknown or too old.
+     */
+    @GetMapping("/checkins/{provisionalId}")
+    public ResponseEntity<?> getQueuedCheckIn(@PathVariable String provisionalId) {
+        Optional<VisiteurDTO> persisted = checkInQueue.findPersisted(provisionalId);
+        if (persisted.isPresent()) {
+            return ResponseEntity.ok(persisted.get());
+        }
+        Optional<QueuedCheckInDTO> queued = checkInQueue.findPending(provisionalId);
+        if (queued.isPresent()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(queued.get());
+        }
+        return checkInQueue.findRejection(provisionalId)
+                .<ResponseEntity<?>>map(reason -> ResponseEntity.status(HttpStatus.CONFLICT).body(reason))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<?> doCreateVisiteur(VisiteurDTO dto, String currentUser) {
         try {
             // If currentUser is not provided, use the authenticated user
             if (currentUser == null) {
@@ -160,8 +257,24 @@ public class VisiteurController {
                 // If invalid enum value is provided, it will throw an exception
             }
 
+            if (checkInQueue.isEnabled()) {
+                QueuedCheckInDTO queued = checkInQueue.enqueue(dto, currentUser);
+                return ResponseEntity.accepted()
+                    .location(URI.create("/api/visiteurs/checkins/" + queued.getProvisionalId()))
+                    .body(queued);
+            }
+
             VisiteurDTO created = visiteurService.save(dto, currentUser);
             return ResponseEntity.ok(created);
+        } catch (IllegalStateException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("visiteur.writeBehind")) {
+                // Queue full or unavailable: the gate should retry shortly
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "2")
+                    .body("Check-in queue is busy, please retry: " + e.getMessage());
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error creating visiteur: " + e.getMessage());
         } catch (IllegalArgumentException e) {
             if (e.getMessage().contains("does not exist in the system")) {
                 return ResponseEntity.badRequest()
@@ -200,12 +313,58 @@ public class VisiteurController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> createVisiteursBatch(@RequestBody List<VisiteurDTO> dtos,
+                                                  @RequestParam(required = false) String currentUser) {
+        try {
+            // If currentUser is not provided, use the authenticated user
+            if (currentUser == null) {
+                currentUser = getAuthenticatedUsername();
+            } else {
+                // If currentUser is provided, validate it matches the authenticated user
+                validateCurrentUser(currentUser);
+            }
+
+            // Invalid items are reported per index in the result, valid ones are created
+            VisiteurBatchResultDTO result = visiteurService.saveBatch(dtos, currentUser);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage().contains("does not exist in the system")) {
+                return ResponseEntity.badRequest()
+                    .body("User validation error: " + e.getMessage());
+            } else if (e.getMessage().contains("Username cannot be null")) {
+                return ResponseEntity.badRequest()
+                    .body("Username is required");
+            } else if (e.getMessage().contains("does not match authenticated user")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body("Authentication error: " + e.getMessage());
+            } else if (e.getMessage().contains("No authenticated user found")) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authentication required");
+            } else if (e.getMessage().contains("visiteur.batch.Empty")) {
+                return ResponseEntity.badRequest()
+                    .body("Batch must contain at least one visiteur");
+            } else if (e.getMessage().contains("visiteur.batch.TooLarge")) {
+                return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body("Batch is too large: " + e.getMessage());
+            }
+            return ResponseEntity.badRequest()
+                .body("Error: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error creating visiteurs: " + e.getMessage());
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateVisiteur(@PathVariable Long id, @RequestBody VisiteurDTO dto) {
         try {
             dto.setId(id);
             VisiteurDTO updated = visiteurService.update(dto);
             return ResponseEntity.ok(updated);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("Visiteur was modified by another user, reload it and try again");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest()
                 .body("Invalid typeVisiteur value. Valid values are: visiteurMalade, docteur, fournisseur");
@@ -216,48 +375,38 @@ public class VisiteurController {
     }
 
     @GetMapping("/charts/entry-time-analysis")
-    public ResponseEntity<List<EntryTimeChartDTO>> getEntryTimeAnalysis(
+    public DeferredResult<ResponseEntity<?>> getEntryTimeAnalysis(
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
-
-        List<EntryTimeChartDTO> chartData = visiteurService.getEntryTimeAnalysis(dateFrom, dateTo);
-        return ResponseEntity.ok(chartData);
+        return analyticsBulkhead.submit(() -> ResponseEntity.ok(visiteurService.getEntryTimeAnalysis(dateFrom, dateTo)));
     }
 
     @GetMapping("/charts/visit-duration-analysis")
-    public ResponseEntity<List<VisitDurationChartDTO>> getVisitDurationAnalysis(
+    public DeferredResult<ResponseEntity<?>> getVisitDurationAnalysis(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
-
-        List<VisitDurationChartDTO> chartData = visiteurService.getVisitDurationAnalysis(dateFrom, dateTo);
-        return ResponseEntity.ok(chartData);
+        return analyticsBulkhead.submit(() -> ResponseEntity.ok(visiteurService.getVisitDurationAnalysis(dateFrom, dateTo)));
     }
 
     @GetMapping("/charts/visitor-type-analysis")
-    public ResponseEntity<List<VisitorTypeChartDTO>> getVisitorTypeAnalysis(
+    public DeferredResult<ResponseEntity<?>> getVisitorTypeAnalysis(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
-
-        List<VisitorTypeChartDTO> chartData = visiteurService.getVisitorTypeAnalysis(dateFrom, dateTo);
-        return ResponseEntity.ok(chartData);
+        return analyticsBulkhead.submit(() -> ResponseEntity.ok(visiteurService.getVisitorTypeAnalysis(dateFrom, dateTo)));
     }
 
     @GetMapping("/charts/average-visit-duration")
-    public ResponseEntity<List<AverageVisitDurationChartDTO>> getAverageVisitDurationAnalysis(
+    public DeferredResult<ResponseEntity<?>> getAverageVisitDurationAnalysis(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
-
-        List<AverageVisitDurationChartDTO> chartData = visiteurService.getAverageVisitDurationAnalysis(dateFrom, dateTo);
-        return ResponseEntity.ok(chartData);
+        return analyticsBulkhead.submit(() -> ResponseEntity.ok(visiteurService.getAverageVisitDurationAnalysis(dateFrom, dateTo)));
     }
 
     @GetMapping("/daily-peak-hours")
-    public ResponseEntity<List<DailyPeakHourDTO>> getDailyPeakHours(
+    public DeferredResult<ResponseEntity<?>> getDailyPeakHours(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
-
-        List<DailyPeakHourDTO> dailyPeakHours = visiteurService.getDailyPeakHours(dateFrom, dateTo);
-        return ResponseEntity.ok(dailyPeakHours);
+        return analyticsBulkhead.submit(() -> ResponseEntity.ok(visiteurService.getDailyPeakHours(dateFrom, dateTo)));
     }
 
 }
@@ -0,0 +1,42 @@
+-- Materialized visiteur audit counters (visiteur_audit_count, audit_operation_count), built from the audit table.
+-- Runs on every startup before Hibernate, the outbox relay and the web server, and is idempotent: each counter
+-- table is created and filled in one transaction the first time, then left to the application, which keeps it
+-- up to date in the transactions writing the audit rows. The application lock serializes nodes starting together;
+-- the table lock keeps nodes of the previous version, which do not count, from auditing during the backfill.
+-- On a brand new database Hibernate creates the empty tables after this script.
+
+IF OBJECT_ID('visiteur_audit', 'U') IS NOT NULL
+    AND (OBJECT_ID('visiteur_audit_count', 'U') IS NULL OR OBJECT_ID('audit_operation_count', 'U') IS NULL)
+BEGIN
+    SET XACT_ABORT ON;
+    BEGIN TRANSACTION;
+    EXEC sp_getapplock @Resource = 'audit-counters', @LockMode = 'Exclusive', @LockOwner = 'Transaction';
+
+    IF OBJECT_ID('visiteur_audit_count', 'U') IS NULL
+    BEGIN
+        CREATE TABLE visiteur_audit_count (
+            visiteur_id BIGINT NOT NULL PRIMARY KEY,
+            audit_count BIGINT NOT NULL
+        );
+        INSERT INTO visiteur_audit_count (visiteur_id, audit_count)
+        SELECT visiteur_id, COUNT_BIG(*)
+        FROM visiteur_audit WITH (TABLOCK, HOLDLOCK)
+        GROUP BY visiteur_id;
+    END
+
+    IF OBJECT_ID('audit_operation_count', 'U') IS NULL
+    BEGIN
+        CREATE TABLE audit_operation_count (
+            counter_key VARCHAR(40) NOT NULL PRIMARY KEY,
+            type_visiteur VARCHAR(255) NULL,
+            operation_type VARCHAR(10) NOT NULL,
+            audit_count BIGINT NOT NULL
+        );
+        INSERT INTO audit_operation_count (counter_key, type_visiteur, operation_type, audit_count)
+        SELECT COALESCE(type_visiteur, 'NONE') + ':' + operation_type, type_visiteur, operation_type, COUNT_BIG(*)
+        FROM visiteur_audit WITH (TABLOCK, HOLDLOCK)
+        GROUP BY type_visiteur, operation_type;
+    END
+
+    COMMIT TRANSACTION;
+END;
@@ -0,0 +1,37 @@
+-- Audit old/new values stored as compressed Smile (AuditPayloadCodec) in VARBINARY(MAX) columns.
+-- Runs on every startup before Hibernate and is idempotent: while old_values / new_values are still text,
+-- they are renamed old_values_json / new_values_json and the binary columns added in their place.
+-- AuditPayloadMigrationService then re-encodes the rows in chunks in the background, the application being up,
+-- and drops the text columns once empty.
+
+IF OBJECT_ID('visiteur_audit', 'U') IS NOT NULL
+BEGIN
+    IF EXISTS (SELECT 1 FROM sys.columns c JOIN sys.types t ON t.user_type_id = c.user_type_id
+               WHERE c.object_id = OBJECT_ID('visiteur_audit') AND c.name = 'old_values'
+                 AND t.name IN ('text', 'ntext', 'varchar', 'nvarchar'))
+        EXEC sp_rename 'visiteur_audit.old_values', 'old_values_json', 'COLUMN';
+    IF EXISTS (SELECT 1 FROM sys.columns c JOIN sys.types t ON t.user_type_id = c.user_type_id
+               WHERE c.object_id = OBJECT_ID('visiteur_audit') AND c.name = 'new_values'
+                 AND t.name IN ('text', 'ntext', 'varchar', 'nvarchar'))
+        EXEC sp_rename 'visiteur_audit.new_values', 'new_values_json', 'COLUMN';
+    IF COL_LENGTH('visiteur_audit', 'old_values') IS NULL
+        ALTER TABLE visiteur_audit ADD old_values VARBINARY(MAX) NULL;
+    IF COL_LENGTH('visiteur_audit', 'new_values') IS NULL
+        ALTER TABLE visiteur_audit ADD new_values VARBINARY(MAX) NULL;
+END;
+
+IF OBJECT_ID('user_audit', 'U') IS NOT NULL
+BEGIN
+    IF EXISTS (SELECT 1 FROM sys.columns c JOIN sys.types t ON t.user_type_id = c.user_type_id
+               WHERE c.object_id = OBJECT_ID('user_audit') AND c.name = 'old_values'
+                 AND t.name IN ('text', 'ntext', 'varchar', 'nvarchar'))
+        EXEC sp_rename 'user_audit.old_values', 'old_values_json', 'COLUMN';
+    IF EXISTS (SELECT 1 FROM sys.columns c JOIN sys.types t ON t.user_type_id = c.user_type_id
+               WHERE c.object_id = OBJECT_ID('user_audit') AND c.name = 'new_values'
+                 AND t.name IN ('text', 'ntext', 'varchar', 'nvarchar'))
+        EXEC sp_rename 'user_audit.new_values', 'new_values_json', 'COLUMN';
+    IF COL_LENGTH('user_audit', 'old_values') IS NULL
+        ALTER TABLE user_audit ADD old_values VARBINARY(MAX) NULL;
+    IF COL_LENGTH('user_audit', 'new_values') IS NULL
+        ALTER TABLE user_audit ADD new_values VARBINARY(MAX) NULL;
+END;
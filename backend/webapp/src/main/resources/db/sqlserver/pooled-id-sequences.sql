@@ -0,0 +1,72 @@
+-- Migration from IDENTITY columns to pooled-lo sequences (increment 50) for
+-- visiteur, users, visiteur_audit and user_audit.
+-- Runs on every startup before Hibernate and is idempotent:
+--   * tables that do not exist yet are skipped (Hibernate creates them with sequences),
+--   * an IDENTITY id column is rebuilt as a plain BIGINT primary key, keeping every existing id,
+--   * each missing sequence is created starting right after the highest existing id.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+DECLARE @tables TABLE (table_name SYSNAME, id_column SYSNAME, sequence_name SYSNAME);
+INSERT INTO @tables (table_name, id_column, sequence_name) VALUES
+    ('visiteur', 'id', 'visiteur_seq'),
+    ('users', 'id', 'users_seq'),
+    ('visiteur_audit', 'audit_id', 'visiteur_audit_seq'),
+    ('user_audit', 'audit_id', 'user_audit_seq');
+
+DECLARE @table SYSNAME, @column SYSNAME, @sequence SYSNAME, @pk SYSNAME, @start BIGINT, @sql NVARCHAR(MAX);
+
+DECLARE table_cursor CURSOR LOCAL FAST_FORWARD FOR
+    SELECT table_name, id_column, sequence_name FROM @tables;
+OPEN table_cursor;
+FETCH NEXT FROM table_cursor INTO @table, @column, @sequence;
+
+WHILE @@FETCH_STATUS = 0
+BEGIN
+    IF OBJECT_ID(@table, 'U') IS NOT NULL
+    BEGIN
+        IF COLUMNPROPERTY(OBJECT_ID(@table), @column, 'IsIdentity') = 1
+        BEGIN
+            SET @pk = NULL;
+            SELECT @pk = name FROM sys.key_constraints
+            WHERE parent_object_id = OBJECT_ID(@table) AND type = 'PK';
+
+            -- Copy the ids into a plain column, then swap it in place of the IDENTITY column
+            SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' ADD ' + QUOTENAME(@column + N'_tmp') + N' BIGINT NULL';
+            EXEC sp_executesql @sql;
+            SET @sql = N'UPDATE ' + QUOTENAME(@table) + N' SET ' + QUOTENAME(@column + N'_tmp') + N' = ' + QUOTENAME(@column);
+            EXEC sp_executesql @sql;
+            IF @pk IS NOT NULL
+            BEGIN
+                SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' DROP CONSTRAINT ' + QUOTENAME(@pk);
+                EXEC sp_executesql @sql;
+            END
+            SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' DROP COLUMN ' + QUOTENAME(@column);
+            EXEC sp_executesql @sql;
+            SET @sql = @table + N'.' + @column + N'_tmp';
+            EXEC sp_rename @sql, @column, 'COLUMN';
+            SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' ALTER COLUMN ' + QUOTENAME(@column) + N' BIGINT NOT NULL';
+            EXEC sp_executesql @sql;
+            SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' ADD CONSTRAINT ' + QUOTENAME(N'PK_' + @table)
+                + N' PRIMARY KEY (' + QUOTENAME(@column) + N')';
+            EXEC sp_executesql @sql;
+        END
+
+        IF NOT EXISTS (SELECT 1 FROM sys.sequences WHERE name = @sequence)
+        BEGIN
+            SET @sql = N'SELECT @start = ISNULL(MAX(' + QUOTENAME(@column) + N'), 0) + 1 FROM ' + QUOTENAME(@table);
+            EXEC sp_executesql @sql, N'@start BIGINT OUTPUT', @start = @start OUTPUT;
+            SET @sql = N'CREATE SEQUENCE ' + QUOTENAME(@sequence) + N' AS BIGINT START WITH '
+                + CAST(@start AS NVARCHAR(20)) + N' INCREMENT BY 50';
+            EXEC sp_executesql @sql;
+        END
+    END
+
+    FETCH NEXT FROM table_cursor INTO @table, @column, @sequence;
+END
+
+CLOSE table_cursor;
+DEALLOCATE table_cursor;
+
+COMMIT TRANSACTION;
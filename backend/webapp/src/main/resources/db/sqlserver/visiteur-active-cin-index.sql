@@ -0,0 +1,15 @@
+-- Unique filtered index: at most one active visit (date_sortie IS NULL) per CIN.
+-- Database-level guarantee behind the per-CIN locks of VisiteurService, which only cover one instance.
+-- Runs on every startup before Hibernate and is idempotent. While duplicate active visits exist
+-- (admitted before this index), the index is not created and a warning is logged instead;
+-- once they are closed (e.g. by the auto-checkout) the next startup creates it. On a brand new
+-- database Hibernate creates the table after this script, so the index appears on the second startup.
+
+IF OBJECT_ID('visiteur', 'U') IS NOT NULL
+    AND NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = 'UX_visiteur_active_cin' AND object_id = OBJECT_ID('visiteur'))
+BEGIN
+    IF EXISTS (SELECT cin FROM visiteur WHERE date_sortie IS NULL GROUP BY cin HAVING COUNT(*) > 1)
+        RAISERROR('UX_visiteur_active_cin not created: some CINs have more than one active visit', 10, 1) WITH NOWAIT;
+    ELSE
+        EXEC('CREATE UNIQUE NONCLUSTERED INDEX UX_visiteur_active_cin ON visiteur (cin) WHERE date_sortie IS NULL');
+END;
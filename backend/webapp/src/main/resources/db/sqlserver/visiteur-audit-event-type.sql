@@ -0,0 +1,59 @@
+-- Event type of the visiteur audit rows (CHECK_IN, CHECK_OUT, EDIT, DELETE), indexed with the timestamp:
+-- /api/audit/visiteurs/exits becomes a range seek instead of LIKE scans over the JSON values.
+-- Runs on every startup before Hibernate and is idempotent: adds the column, types the rows that have
+-- none yet, then creates the index. Older rows carry no old values, so a checkout is recognised from
+-- the audit columns: the first UPDATE of a visit showing a date_sortie.
+
+IF OBJECT_ID('visiteur_audit', 'U') IS NOT NULL
+BEGIN
+    IF COL_LENGTH('visiteur_audit', 'event_type') IS NULL
+        EXEC('ALTER TABLE visiteur_audit ADD event_type VARCHAR(10) NULL');
+
+    -- Separate batch: the column may not exist when this one is compiled
+    EXEC('
+        IF EXISTS (SELECT 1 FROM visiteur_audit WHERE event_type IS NULL)
+        BEGIN
+            SELECT audit_id,
+                   CASE
+                       WHEN operation_type = ''CREATE'' THEN ''CHECK_IN''
+                       WHEN operation_type = ''DELETE'' THEN ''DELETE''
+                       WHEN date_sortie IS NOT NULL AND previous_closed = 0 THEN ''CHECK_OUT''
+                       ELSE ''EDIT''
+                   END AS event_type
+            INTO #visiteur_audit_event_type
+            FROM (
+                SELECT audit_id, operation_type, date_sortie, event_type,
+                       LAG(CASE WHEN date_sortie IS NULL THEN 0 ELSE 1 END, 1, 0)
+                           OVER (PARTITION BY visiteur_id ORDER BY operation_timestamp, audit_id) AS previous_closed
+                FROM visiteur_audit
+            ) history
+            WHERE event_type IS NULL;
+
+            CREATE CLUSTERED INDEX CX_visiteur_audit_event_type ON #visiteur_audit_event_type (audit_id);
+
+            -- Chunks of 10000 rows keep each transaction and its locks short on a live table
+            DECLARE @from BIGINT = 0, @to BIGINT;
+            WHILE 1 = 1
+            BEGIN
+                SET @to = NULL;
+                SELECT @to = MAX(audit_id) FROM (
+                    SELECT TOP (10000) audit_id FROM #visiteur_audit_event_type WHERE audit_id > @from ORDER BY audit_id
+                ) chunk;
+                IF @to IS NULL BREAK;
+
+                UPDATE audit
+                SET event_type = typed.event_type
+                FROM visiteur_audit audit
+                JOIN #visiteur_audit_event_type typed ON typed.audit_id = audit.audit_id
+                WHERE typed.audit_id > @from AND typed.audit_id <= @to AND audit.event_type IS NULL;
+
+                SET @from = @to;
+            END
+
+            DROP TABLE #visiteur_audit_event_type;
+        END
+
+        IF NOT EXISTS (SELECT 1 FROM sys.indexes WHERE name = ''IX_visiteur_audit_event_type'' AND object_id = OBJECT_ID(''visiteur_audit''))
+            CREATE NONCLUSTERED INDEX IX_visiteur_audit_event_type ON visiteur_audit (event_type, operation_timestamp);
+    ');
+END;
@@ -0,0 +1,9 @@
+-- Optimistic lock column for visiteur.
+-- Runs on every startup before Hibernate and is idempotent. Existing visits start at version 0:
+-- Hibernate's schema update would add the column as nullable, and a NULL version makes
+-- Spring Data treat a loaded visit as new.
+
+IF OBJECT_ID('visiteur', 'U') IS NOT NULL AND COL_LENGTH('visiteur', 'version') IS NULL
+BEGIN
+    EXEC('ALTER TABLE visiteur ADD version BIGINT NOT NULL CONSTRAINT DF_visiteur_version DEFAULT 0');
+END;
@@ -0,0 +1,215 @@
+package com.csys.template.audit;
+
+import com.csys.template.domain.AuditEventType;
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.domain.User;
+import com.csys.template.dto.VisiteurAuditDTO;
+import com.csys.template.dto.VisiteurDTO;
+import com.csys.template.repository.AuditOutboxRepository;
+import com.csys.template.repository.UserAuditRepository;
+import com.csys.template.repository.UserRepository;
+import com.csys.template.repository.VisiteurAuditRepository;
+import com.csys.template.service.VisiteurAuditService;
+import com.csys.template.service.VisiteurService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class AuditOutboxRelayTests {
+
+    @Autowired
+    private AuditOutboxRelay auditOutboxRelay;
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    private AuditOutboxRepository auditOutboxRepository;
+
+    @Autowired
+    private VisiteurAuditRepository visiteurAuditRepository;
+
+    @Autowired
+    private UserAuditRepository userAuditRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AuditCounters auditCounters;
+
+    @Autowired
+    private VisiteurAuditService visiteurAuditService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("auditObjectMapper")
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM audit_outbox");
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur_audit_count");
+        jdbcTemplate.update("DELETE FROM audit_operation_count");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+    }
+
+    @Test
+    void outboxRowCommitsOrRollsBackWithTheChange() {
+        Long committed = visiteurService.save(visiteur("11111111"), "agent").getId();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.executeWithoutResult(status -> {
+            visiteurService.save(visiteur("22222222"), "agent");
+            status.setRollbackOnly();
+        });
+
+        assertThat(jdbcTemplate.queryForList("SELECT entity_id FROM audit_outbox", Long.class)).containsExactly(committed);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur_audit", Long.class)).isZero();
+
+        assertThat(auditOutboxRelay.relayPending()).isEqualTo(1);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_outbox", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForMap("SELECT visiteur_id, operation_type, cin, performed_by FROM visiteur_audit"))
+                .containsEntry("VISITEUR_ID", committed)
+                .containsEntry("OPERATION_TYPE", "CREATE")
+                .containsEntry("CIN", "11111111")
+                .containsEntry("PERFORMED_BY", "SYSTEM");
+    }
+
+    @Test
+    void auditRowsHoldOnlyTheChangedFields() {
+        // Edited as a client would: the visit as read back, with the timestamp precision of the database
+        VisiteurDTO saved = visiteurService.findOne(visiteurService.save(visiteur("33333333"), "agent").getId());
+        saved.setObservation("Livraison au magasin");
+        visiteurService.update(saved);
+        visiteurService.markSortie(saved.getId(), "agent");
+        auditOutboxRelay.relayPending();
+
+        List<Map<String, Object>> audits = jdbcTemplate.query(
+                "SELECT event_type, old_values, new_values FROM visiteur_audit ORDER BY audit_id",
+                (rs, rowNum) -> {
+                    Map<String, Object> audit = new HashMap<>();
+                    audit.put("EVENT_TYPE", rs.getString("event_type"));
+                    audit.put("OLD_VALUES", AuditPayloadCodec.decode(rs.getBytes("old_values")));
+                    audit.put("NEW_VALUES", AuditPayloadCodec.decode(rs.getBytes("new_values")));
+                    return audit;
+                });
+        assertThat(audits).hasSize(3);
+        assertThat(audits).extracting(audit -> audit.get("EVENT_TYPE")).containsExactly("CHECK_IN", "EDIT", "CHECK_OUT");
+        assertThat(audits.get(0).get("OLD_VALUES")).isNull();
+        assertThat((String) audits.get(0).get("NEW_VALUES")).contains("\"cin\":\"33333333\"").doesNotContain("dateSortie");
+        assertThat(audits.get(1))
+                .containsEntry("OLD_VALUES", "{\"observation\":null}")
+                .containsEntry("NEW_VALUES", "{\"observation\":\"Livraison au magasin\"}");
+        assertThat(audits.get(2)).containsEntry("OLD_VALUES", "{\"dateSortie\":null,\"userSortie\":null}");
+        assertThat((String) audits.get(2).get("NEW_VALUES")).contains("\"userSortie\":\"agent\"").doesNotContain("cin");
+        assertThat(visiteurAuditRepository.findExitOperations(PageRequest.of(0, 10)).getTotalElements()).isEqualTo(1);
+        assertThat(visiteurAuditService.getAuditCountForVisiteur(saved.getId())).isEqualTo(3);
+        assertThat(visiteurAuditService.countOperationsByTypeAndVisitorType())
+                .containsExactlyInAnyOrder(new Object[]{TypeVisiteur.FOURNISSEUR, "CREATE", 1L}, new Object[]{TypeVisiteur.FOURNISSEUR, "UPDATE", 2L});
+
+        // Lists carry no old/new values, the single record does
+        List<VisiteurAuditDTO> history = visiteurAuditService.findByVisiteurId(saved.getId(), PageRequest.of(0, 10)).getContent();
+        assertThat(history).extracting(VisiteurAuditDTO::getEventType)
+                .containsExactlyInAnyOrder(AuditEventType.CHECK_IN, AuditEventType.EDIT, AuditEventType.CHECK_OUT);
+        assertThat(history).allSatisfy(audit -> assertThat(audit.getNewValues()).isNull());
+        Long edit = history.stream().filter(audit -> audit.getEventType() == AuditEventType.EDIT).findFirst().get().getAuditId();
+        assertThat(visiteurAuditService.findById(edit)).get()
+                .extracting(VisiteurAuditDTO::getNewValues).isEqualTo("{\"observation\":\"Livraison au magasin\"}");
+    }
+
+    @Test
+    void userOutboxPayloadLeavesOutThePassword() {
+        User user = new User();
+        user.setUsername("gate-2");
+        user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z2dG1bQe5nSxZlYxk5bFyE6G");
+        user.setRole("ROLE_USER");
+        Long id = userRepository.save(user).getId();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT payload FROM audit_outbox WHERE entity_id = ?", String.class, id))
+                .contains("\"username\":\"gate-2\"").doesNotContain("password").doesNotContain("$2a$");
+        auditOutboxRelay.relayPending();
+        assertThat(jdbcTemplate.queryForMap("SELECT username, role FROM user_audit WHERE user_id = ?", id))
+                .containsEntry("USERNAME", "gate-2")
+                .containsEntry("ROLE", "ROLE_USER");
+    }
+
+    @Test
+    void concurrentRelaysAuditEachEventOnce() throws Exception {
+        int events = 1000;
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            rows.add(new Object[]{(long) i, Timestamp.valueOf(LocalDateTime.now()),
+                    "{\"id\":" + i + ",\"cin\":\"" + String.format("%08d", i) + "\"}"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO audit_outbox (id, entity_type, entity_id, operation_type, operation_timestamp, performed_by, payload) "
+                + "VALUES (NEXT VALUE FOR audit_outbox_seq, 'VISITEUR', ?, 'UPDATE', ?, 'agent', ?)", rows);
+
+        // Two nodes relaying the same outbox
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService nodes = Executors.newFixedThreadPool(2);
+        List<Future<Integer>> moved = new ArrayList<>();
+        for (int node = 0; node < 2; node++) {
+            AuditOutboxRelay relay = new AuditOutboxRelay(auditOutboxRepository, visiteurAuditRepository, userAuditRepository,
+                    auditCounters, transactionManager, objectMapper, new SimpleMeterRegistry(), 100);
+            moved.add(nodes.submit(() -> {
+                start.await();
+                return relay.relayPending();
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> result : moved) {
+            total += result.get();
+        }
+        nodes.shutdown();
+        total += auditOutboxRelay.relayPending();
+
+        assertThat(total).isEqualTo(events);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM audit_outbox", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur_audit", Long.class)).isEqualTo((long) events);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT visiteur_id) FROM visiteur_audit", Long.class)).isEqualTo((long) events);
+        assertThat(jdbcTemplate.queryForObject("SELECT SUM(audit_count) FROM visiteur_audit_count", Long.class)).isEqualTo((long) events);
+    }
+
+    private static VisiteurDTO visiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Ben Salah");
+        dto.setPrenom("Amine");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
@@ -0,0 +1,157 @@
+package com.csys.template.audit;
+
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.domain.Visiteur;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the visiteur audit old/new values stored as JSON text, as before, and as compressed Smile:
+ * payload bytes per row and the time to read every payload back as JSON, decoding included.
+ * Both tables are in memory here, so the read times only show the decoding cost; on SQL Server the smaller
+ * rows also mean fewer pages read.
+ */
+@SpringBootTest
+class AuditPayloadBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditPayloadBenchmarkTests.class);
+
+    private static final int VISITS = 2_000;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("auditObjectMapper")
+    private ObjectMapper objectMapper;
+
+    private final Map<Long, List<String>> payloads = new HashMap<>();
+
+    /**
+     * Payload column of a result row, as JSON.
+     */
+    private interface PayloadReader {
+        String read(ResultSet rs, String column) throws SQLException;
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.execute("CREATE TABLE audit_payload_json (audit_id BIGINT PRIMARY KEY, old_values TEXT, new_values TEXT)");
+
+        // Each visit is audited as a check-in (full state), an edit and a check-out (changed fields only)
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        long auditId = 0;
+        for (int i = 0; i < VISITS; i++) {
+            Visiteur visiteur = new Visiteur();
+            visiteur.setCin(String.format("%08d", 60_000_000 + i));
+            visiteur.setNom("Nom" + i);
+            visiteur.setPrenom("Prenom" + i);
+            visiteur.setMatriculeFiscale("1234567A");
+            visiteur.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+            visiteur.setDateEntree(start.plusMinutes(i * 8L));
+            visiteur.setDetaille("Livraison de fournitures de bureau, bon n° " + (40_000 + i));
+            visiteur.setUserEntree("agent");
+            String exit = objectMapper.writeValueAsString(start.plusMinutes(i * 8L + 45));
+            payloads.put(++auditId, Arrays.asList(null, objectMapper.writeValueAsString(AuditEntityListener.auditState(visiteur))));
+            payloads.put(++auditId, Arrays.asList("{\"observation\":null}", "{\"observation\":\"Attendu au quai " + i % 4 + "\"}"));
+            payloads.put(++auditId, Arrays.asList("{\"dateSortie\":null,\"userSortie\":null}",
+                    "{\"dateSortie\":" + exit + ",\"userSortie\":\"agent\"}"));
+        }
+
+        List<Object[]> text = new ArrayList<>();
+        List<Object[]> binary = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        payloads.forEach((id, values) -> {
+            text.add(new Object[]{id, values.get(0), values.get(1)});
+            binary.add(new Object[]{id, (id + 2) / 3, now, AuditPayloadCodec.encode(values.get(0)), AuditPayloadCodec.encode(values.get(1))});
+        });
+        jdbcTemplate.batchUpdate("INSERT INTO audit_payload_json (audit_id, old_values, new_values) VALUES (?, ?, ?)", text);
+        jdbcTemplate.batchUpdate("INSERT INTO visiteur_audit (audit_id, visiteur_id, operation_type, operation_timestamp, performed_by, "
+                + "old_values, new_values) VALUES (?, ?, 'UPDATE', ?, 'agent', ?, ?)", binary);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS audit_payload_json");
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+    }
+
+    @Test
+    void compressedPayloadsAreSmallerAndReadBackUnchanged() {
+        long jsonBytes = 0;
+        long binaryBytes = 0;
+        for (List<String> values : payloads.values()) {
+            for (String value : values) {
+                if (value != null) {
+                    jsonBytes += value.getBytes(StandardCharsets.UTF_8).length;
+                    binaryBytes += AuditPayloadCodec.encode(value).length;
+                }
+            }
+        }
+
+        PayloadReader text = ResultSet::getString;
+        PayloadReader binary = (rs, column) -> AuditPayloadCodec.decode(rs.getBytes(column));
+        assertThat(read("audit_payload_json", text)).isEqualTo(payloads);
+        assertThat(read("visiteur_audit", binary)).isEqualTo(payloads);
+
+        long jsonMicros = readMicros("audit_payload_json", text);
+        long binaryMicros = readMicros("visiteur_audit", binary);
+        int rows = payloads.size();
+        log.info("{} audit rows: JSON {} payload bytes ({} per row, read in {} us, {} rows/s), "
+                        + "compressed Smile {} bytes ({} per row, read in {} us, {} rows/s)",
+                rows, jsonBytes, jsonBytes / rows, jsonMicros, rows * 1_000_000L / Math.max(1, jsonMicros),
+                binaryBytes, binaryBytes / rows, binaryMicros, rows * 1_000_000L / Math.max(1, binaryMicros));
+
+        assertThat(binaryBytes).isLessThan(jsonBytes * 3 / 4);
+    }
+
+    /**
+     * Payloads of a table by audit id, as JSON.
+     */
+    private Map<Long, List<String>> read(String table, PayloadReader reader) {
+        Map<Long, List<String>> rows = new HashMap<>();
+        jdbcTemplate.query("SELECT audit_id, old_values, new_values FROM " + table, rs -> {
+            rows.put(rs.getLong("audit_id"), Arrays.asList(reader.read(rs, "old_values"), reader.read(rs, "new_values")));
+        });
+        return rows;
+    }
+
+    /**
+     * Median time to read every payload of a table, after a warm-up.
+     */
+    private long readMicros(String table, PayloadReader reader) {
+        long[] times = new long[ROUNDS];
+        for (int i = -ROUNDS; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            read(table, reader);
+            if (i >= 0) {
+                times[i] = (System.nanoTime() - start) / 1_000;
+            }
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+}
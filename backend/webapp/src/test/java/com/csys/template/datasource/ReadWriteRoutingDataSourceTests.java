@@ -0,0 +1,108 @@
+package com.csys.template.datasource;
+
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.VisiteurDTO;
+import com.csys.template.service.VisiteurService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the routing datasource against two embedded H2 databases standing in for the primary and the replica.
+ * Replication is deliberately absent, so every row tells which database served the query.
+ */
+@SpringBootTest(properties = {
+        "datasource.replica.enabled=true",
+        "datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "datasource.replica.max-staleness=30s"
+})
+class ReadWriteRoutingDataSourceTests {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+
+        // Give the replica the schema Hibernate generated on the primary, without any data
+        replica.execute("DROP ALL OBJECTS");
+        List<String> schema = primary.queryForList("SCRIPT NODATA", String.class);
+        schema.forEach(replica::execute);
+
+        primary.update("DELETE FROM visiteur_audit");
+        primary.update("DELETE FROM visiteur");
+        primary.update("DELETE FROM user_audit");
+        primary.update("DELETE FROM users");
+        primary.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsAreServedByTheReplica() {
+        replica.update("INSERT INTO visiteur (id, cin, nom, prenom, date_entree, version) VALUES (NEXT VALUE FOR visiteur_seq, '11111111', 'Replica', 'Row', CURRENT_TIMESTAMP, 0)");
+
+        List<VisiteurDTO> visiteurs = visiteurService.findAll();
+
+        assertThat(visiteurs).extracting(VisiteurDTO::getNom).containsExactly("Replica");
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM visiteur", Long.class)).isZero();
+    }
+
+    @Test
+    void writesAreServedByThePrimaryAndReadBackByTheWriter() {
+        authenticate("agent");
+        visiteurService.save(newVisiteur("12345678"), "agent");
+
+        assertThat(primary.queryForObject("SELECT COUNT(*) FROM visiteur", Long.class)).isEqualTo(1L);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM visiteur", Long.class)).isZero();
+
+        // Within the staleness window the writer reads from the primary...
+        assertThat(visiteurService.findAll()).extracting(VisiteurDTO::getCin).containsExactly("12345678");
+
+        // ...while other users keep reading from the replica
+        authenticate("reporting");
+        assertThat(visiteurService.findAll()).isEmpty();
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken(username, null, "ROLE_USER"));
+    }
+
+    private VisiteurDTO newVisiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Ben Salah");
+        dto.setPrenom("Amine");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
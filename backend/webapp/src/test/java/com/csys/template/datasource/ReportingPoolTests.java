@@ -0,0 +1,106 @@
+package com.csys.template.datasource;
+
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.VisiteurDTO;
+import com.csys.template.service.VisiteurService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Saturates the reporting pool and checks that gate traffic on the OLTP pool is unaffected.
+ */
+@SpringBootTest(properties = {
+        "datasource.reporting.hikari.maximum-pool-size=1",
+        "datasource.reporting.hikari.connection-timeout=250"
+})
+class ReportingPoolTests {
+
+    @Autowired
+    @Qualifier("reportingDataSource")
+    private DataSource reportingDataSource;
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM users WHERE username = 'agent'");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("agent", null, "ROLE_USER"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void saturatedReportingPoolDoesNotBlockCheckIns() throws Exception {
+        LocalDate today = LocalDate.now();
+        assertThat(ReportingWorkload.call(() -> visiteurService.getVisitorTypeAnalysis(today, today)))
+                .allSatisfy(chart -> assertThat(chart.getCount()).isZero());
+
+        // A long report holds the only reporting connection
+        try (Connection ignored = reportingDataSource.getConnection()) {
+            assertThat(meterRegistry.get("hikaricp.connections.active").tag("pool", "reporting").gauge().value())
+                    .isEqualTo(1.0);
+
+            assertThatThrownBy(() -> ReportingWorkload.call(() -> visiteurService.getVisitorTypeAnalysis(today, today)))
+                    .isInstanceOf(DataAccessResourceFailureException.class);
+            assertThat(meterRegistry.get("hikaricp.connections.timeout").tag("pool", "reporting").counter().count())
+                    .isEqualTo(1.0);
+
+            VisiteurDTO saved = visiteurService.save(newVisiteur("12345678"), "agent");
+            assertThat(saved.getId()).isNotNull();
+        }
+        assertThat(meterRegistry.get("hikaricp.connections.timeout").tag("pool", "oltp").counter().count()).isZero();
+    }
+
+    @Test
+    void productionConfigurationExposesThePoolMetrics() throws Exception {
+        // The test application.yml shadows the main one on the classpath: load the file itself
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader().load("application.yml",
+                new FileSystemResource("src/main/resources/application.yml"));
+
+        assertThat(sources).hasSize(1);
+        assertThat(sources.get(0).getProperty("management.endpoints.web.exposure.include")).isEqualTo("health,metrics");
+    }
+
+    private VisiteurDTO newVisiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Ben Salah");
+        dto.setPrenom("Amine");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
@@ -0,0 +1,108 @@
+package com.csys.template.security;
+
+import com.csys.template.util.JwtUtil;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link JwtFilter} on an authenticated request, with and without the verified-claims cache
+ * and stateless mode (the user lookup is an in-memory stub here), against the former three-parse validation.
+ * Not run by the test suite; run it with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.csys.template.security.JwtFilterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    @Param({"0", "10000"})
+    private long claimsCacheSize;
+
+    @Param({"false", "true"})
+    private boolean stateless;
+
+    private JwtUtil jwtUtil;
+    private JwtFilter filter;
+    private String token;
+    private Key signingKey;
+
+    @Setup
+    public void setUp() {
+        JwtKeyRing keyRing = JwtKeyRing.ephemeral();
+        jwtUtil = new JwtUtil(keyRing, claimsCacheSize);
+        UserDetails user = new User("agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtUtil.generateToken(user);
+        signingKey = keyRing.getSigningKey().getKey();
+
+        filter = new JwtFilter();
+        ReflectionTestUtils.setField(filter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(filter, "userDetailsService",
+                (UserDetailsService) username -> user);
+        ReflectionTestUtils.setField(filter, "tokenDenylist", new TokenDenylist(jwtUtil, new JdbcTemplate(), 10_000));
+        ReflectionTestUtils.setField(filter, "stateless", stateless);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/visiteurs");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    /**
+     * What the filter used to do per request: build a parser and verify the token three times.
+     */
+    @Benchmark
+    public Object formerTripleParse() {
+        Object subject = null;
+        for (int i = 0; i < 3; i++) {
+            subject = Jwts.parserBuilder().setSigningKey(signingKey).build().parseClaimsJws(token).getBody().getSubject();
+        }
+        return subject;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
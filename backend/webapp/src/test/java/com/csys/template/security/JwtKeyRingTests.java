@@ -0,0 +1,124 @@
+package com.csys.template.security;
+
+import com.csys.template.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtKeyRingTests {
+
+    private static final String PASSWORD = "changeit";
+
+    private final UserDetails agent = new User("agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void nodesSharingAKeystoreAcceptEachOthersTokens() throws Exception {
+        Path keystore = dir.resolve("jwt.p12");
+        addSecretKey(keystore, "k1");
+        JwtUtil nodeA = new JwtUtil(ring(keystore, Duration.ZERO, Duration.ofHours(10)), 100);
+        JwtUtil nodeB = new JwtUtil(ring(keystore, Duration.ZERO, Duration.ofHours(10)), 100);
+
+        String token = nodeA.generateToken(agent);
+
+        assertThat(kid(token)).isEqualTo("k1");
+        assertThat(nodeB.extractUsername(token)).isEqualTo("agent");
+        assertThatThrownBy(() -> new JwtUtil(JwtKeyRing.ephemeral(), 100).extractAllClaims(token))
+                .isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void rotatedKeyKeepsVerifyingDuringTheOverlap() throws Exception {
+        Path keystore = dir.resolve("jwt.p12");
+        addSecretKey(keystore, "k1");
+        JwtKeyRing keyRing = ring(keystore, Duration.ZERO, Duration.ofHours(1));
+        JwtUtil jwtUtil = new JwtUtil(keyRing, 100);
+        String before = jwtUtil.generateToken(agent);
+        jwtUtil.extractAllClaims(before);
+
+        Thread.sleep(1100);
+        addSecretKey(keystore, "k2");
+        keyRing.reloadIfChanged();
+        String after = jwtUtil.generateToken(agent);
+
+        assertThat(kid(after)).isEqualTo("k2");
+        assertThat(jwtUtil.extractUsername(before)).isEqualTo("agent");
+        assertThat(jwtUtil.extractUsername(after)).isEqualTo("agent");
+
+        // Past the overlap, even the cached claims of the retired key are refused
+        JwtUtil noOverlap = new JwtUtil(ring(keystore, Duration.ZERO, Duration.ZERO), 100);
+        assertThat(noOverlap.extractUsername(after)).isEqualTo("agent");
+        assertThatThrownBy(() -> noOverlap.extractAllClaims(before)).isInstanceOf(JwtException.class);
+
+        // A key not yet activated verifies but does not sign
+        JwtUtil notYetActive = new JwtUtil(ring(keystore, Duration.ofHours(1), Duration.ZERO), 100);
+        assertThat(kid(notYetActive.generateToken(agent))).isEqualTo("k1");
+        assertThat(notYetActive.extractUsername(after)).isEqualTo("agent");
+    }
+
+    @Test
+    void privateKeyEntriesSignAsymmetrically() throws Exception {
+        Path keystore = dir.resolve("jwt.p12");
+        Process keytool = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "rs1", "-keyalg", "RSA", "-keysize", "2048", "-dname", "CN=webapp",
+                "-storetype", "PKCS12", "-keystore", keystore.toString(), "-storepass", PASSWORD)
+                .inheritIO().start();
+        assertThat(keytool.waitFor()).isZero();
+        JwtUtil jwtUtil = new JwtUtil(ring(keystore, Duration.ZERO, Duration.ofHours(10)), 100);
+
+        String token = jwtUtil.generateToken(agent);
+
+        assertThat(header(token)).contains("\"alg\":\"RS256\"").contains("\"kid\":\"rs1\"");
+        assertThat(jwtUtil.extractUsername(token)).isEqualTo("agent");
+    }
+
+    private static JwtKeyRing ring(Path keystore, Duration activationDelay, Duration overlap) {
+        return new JwtKeyRing(keystore.toString(), PASSWORD, "PKCS12", activationDelay, overlap);
+    }
+
+    private static void addSecretKey(Path keystore, String alias) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        if (Files.exists(keystore)) {
+            try (InputStream in = Files.newInputStream(keystore)) {
+                keyStore.load(in, PASSWORD.toCharArray());
+            }
+        } else {
+            keyStore.load(null, null);
+        }
+        keyStore.setEntry(alias, new KeyStore.SecretKeyEntry(Keys.secretKeyFor(SignatureAlgorithm.HS256)),
+                new KeyStore.PasswordProtection(PASSWORD.toCharArray()));
+        try (OutputStream out = Files.newOutputStream(keystore)) {
+            keyStore.store(out, PASSWORD.toCharArray());
+        }
+    }
+
+    private static String kid(String token) throws Exception {
+        return new ObjectMapper().readTree(header(token)).get("kid").asText();
+    }
+
+    private static String header(String token) {
+        return new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+    }
+}
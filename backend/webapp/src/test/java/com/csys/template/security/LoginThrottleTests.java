@@ -0,0 +1,28 @@
+package com.csys.template.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginThrottleTests {
+
+    private final LoginThrottle throttle = new LoginThrottle(100, 100, 5, 5);
+
+    @Test
+    void successfulLoginsDoNotCountAgainstTheUsername() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(throttle.tryAcquire("10.0.0." + i, "agent")).isEmpty();
+            throttle.refund("agent");
+        }
+    }
+
+    @Test
+    void failedLoginsAreThrottledPerUsername() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(throttle.tryAcquire("10.0.0." + i, "agent")).isEmpty();
+        }
+
+        assertThat(throttle.tryAcquire("10.0.1.1", "AGENT")).isPresent();
+        assertThat(throttle.tryAcquire("10.0.1.1", "other")).isEmpty();
+    }
+}
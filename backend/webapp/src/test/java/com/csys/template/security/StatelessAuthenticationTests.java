@@ -0,0 +1,128 @@
+package com.csys.template.security;
+
+import com.csys.template.domain.User;
+import com.csys.template.repository.UserRepository;
+import com.csys.template.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "jwt.stateless=true")
+class StatelessAuthenticationTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM users WHERE username IN ('agent', 'ghost')");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+    }
+
+    @Test
+    void requestsAreAuthenticatedFromTheClaimsAlone() {
+        // No such row in the users table: only the verified claims can authenticate it
+        assertThat(get(token("ghost"))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void loggedOutTokensAreRefused() {
+        String token = token("agent");
+        assertThat(get(token)).isEqualTo(HttpStatus.OK);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        assertThat(restTemplate.exchange("/auth/logout", HttpMethod.POST, new HttpEntity<>(headers), Void.class)
+                .getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+        assertThat(get(token)).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(get(token("agent"))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void tokensIssuedBeforeAUserChangeAreRefused() throws InterruptedException {
+        // Issued just before the change, most likely within the same second
+        String token = token("agent");
+        User agent = userRepository.findByUsername("agent").orElseThrow();
+        agent.setRole("ROLE_ADMIN");
+        userRepository.save(agent);
+
+        assertThat(get(token)).isEqualTo(HttpStatus.UNAUTHORIZED);
+
+        // A new login right after the change gets a valid token
+        Thread.sleep(2);
+        assertThat(get(token("agent"))).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void tokensIssuedEarlierInTheSecondOfARevocationAreRefused() throws InterruptedException {
+        Thread.sleep(1000 - System.currentTimeMillis() % 1000 + 5);
+        Claims issuedBefore = jwtUtil.extractAllClaims(token("ghost"));
+        Thread.sleep(10);
+        tokenDenylist.revokeUser("ghost");
+        Thread.sleep(2);
+        Claims issuedAfter = jwtUtil.extractAllClaims(token("ghost"));
+
+        assertThat(issuedBefore.getIssuedAt()).isEqualTo(issuedAfter.getIssuedAt());
+        assertThat(tokenDenylist.isRevoked(issuedBefore)).isTrue();
+        assertThat(tokenDenylist.isRevoked(issuedAfter)).isFalse();
+    }
+
+    @Test
+    void revocationsReachTheOtherNodes() throws InterruptedException {
+        // Another node sharing the database, with its own in-memory list
+        TokenDenylist otherNode = new TokenDenylist(jwtUtil, jdbcTemplate, 10_000);
+        otherNode.load();
+        String loggedOut = token("agent");
+        String changed = token("ghost");
+        assertThat(otherNode.isRevoked(jwtUtil.extractAllClaims(loggedOut))).isFalse();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(loggedOut);
+        restTemplate.exchange("/auth/logout", HttpMethod.POST, new HttpEntity<>(headers), Void.class);
+        tokenDenylist.revokeUser("ghost");
+        otherNode.sync();
+        Thread.sleep(2);
+
+        assertThat(otherNode.isRevoked(jwtUtil.extractAllClaims(loggedOut))).isTrue();
+        assertThat(otherNode.isRevoked(jwtUtil.extractAllClaims(changed))).isTrue();
+        assertThat(otherNode.isRevoked(jwtUtil.extractAllClaims(token("agent")))).isFalse();
+    }
+
+    private String token(String username) {
+        return jwtUtil.generateToken(new org.springframework.security.core.userdetails.User(
+                username, "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    private HttpStatus get(String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return restTemplate.exchange("/api/visiteurs/types", HttpMethod.GET, new HttpEntity<>(headers), String.class)
+                .getStatusCode();
+    }
+}
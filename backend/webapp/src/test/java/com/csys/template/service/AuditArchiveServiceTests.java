@@ -0,0 +1,114 @@
+package com.csys.template.service;
+
+import com.csys.template.dto.VisiteurAuditDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class AuditArchiveServiceTests {
+
+    @Autowired
+    private AuditArchiveService auditArchiveService;
+
+    @Autowired
+    private VisiteurAuditService visiteurAuditService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${audit.archive.dir}")
+    private String archiveDir;
+
+    @BeforeEach
+    @AfterEach
+    void clean() throws IOException {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        FileSystemUtils.deleteRecursively(Paths.get(archiveDir));
+    }
+
+    @Test
+    void coldMonthsMoveToSegmentsAndStayQueryable() {
+        LocalDateTime now = LocalDateTime.now();
+        YearMonth yearAgo = YearMonth.now().minusMonths(12);
+        YearMonth eightMonthsAgo = YearMonth.now().minusMonths(8);
+        insertVisiteurAudit(1L, yearAgo.atDay(3).atTime(9, 0));
+        insertVisiteurAudit(2L, yearAgo.atDay(20).atTime(17, 30));
+        insertVisiteurAudit(1L, eightMonthsAgo.atDay(10).atTime(8, 15));
+        insertVisiteurAudit(1L, now.minusHours(1));
+        jdbcTemplate.update("INSERT INTO user_audit (audit_id, user_id, operation_type, operation_timestamp, performed_by, username) "
+                + "VALUES (NEXT VALUE FOR user_audit_seq, 1, 'CREATE', ?, 'SYSTEM', 'agent')", Timestamp.valueOf(yearAgo.atDay(1).atTime(12, 0)));
+
+        assertThat(auditArchiveService.archiveColdMonths()).isEqualTo(4);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur_audit", Long.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_audit", Long.class)).isZero();
+        assertThat(Files.exists(Paths.get(archiveDir, "visiteur_audit-" + yearAgo + ".ndjson.gz"))).isTrue();
+        assertThat(Files.exists(Paths.get(archiveDir, "visiteur_audit-" + eightMonthsAgo + ".ndjson.gz"))).isTrue();
+        assertThat(Files.exists(Paths.get(archiveDir, "user_audit-" + yearAgo + ".ndjson.gz"))).isTrue();
+        assertThat(auditArchiveService.archiveColdMonths()).isZero();
+
+        // Newest first: the row still in the table, then the archived ones
+        Page<VisiteurAuditDTO> first = visiteurAuditService.findByDateRange(now.minusYears(2), now, PageRequest.of(0, 2));
+        assertThat(first.getTotalElements()).isEqualTo(4);
+        assertThat(first.getContent()).extracting(VisiteurAuditDTO::getOperationTimestamp)
+                .containsExactly(jdbcTemplate.queryForObject("SELECT operation_timestamp FROM visiteur_audit", LocalDateTime.class),
+                        eightMonthsAgo.atDay(10).atTime(8, 15));
+        Page<VisiteurAuditDTO> second = visiteurAuditService.findByDateRange(now.minusYears(2), now, PageRequest.of(1, 2));
+        assertThat(second.getContent()).extracting(VisiteurAuditDTO::getOperationTimestamp)
+                .containsExactly(yearAgo.atDay(20).atTime(17, 30), yearAgo.atDay(3).atTime(9, 0));
+
+        assertThat(visiteurAuditService.findByVisiteurIdAndDateRange(1L, now.minusYears(2), eightMonthsAgo.atEndOfMonth().atStartOfDay(),
+                PageRequest.of(0, 10)).getContent()).extracting(VisiteurAuditDTO::getOperationTimestamp)
+                .containsExactly(eightMonthsAgo.atDay(10).atTime(8, 15), yearAgo.atDay(3).atTime(9, 0));
+    }
+
+    @Test
+    void archivedPagesAreTheNewestRowsInOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> timestamps = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            timestamps.add(YearMonth.now().minusMonths(9 + i % 3).atDay(1 + i % 28).atTime(8, i));
+        }
+        Collections.shuffle(timestamps, new Random(7));
+        timestamps.forEach(timestamp -> insertVisiteurAudit(1L, timestamp));
+        auditArchiveService.archiveColdMonths();
+
+        List<LocalDateTime> newestFirst = new ArrayList<>(timestamps);
+        newestFirst.sort(Comparator.reverseOrder());
+        Page<VisiteurAuditDTO> page = visiteurAuditService.findByDateRange(now.minusYears(2), now, PageRequest.of(3, 7));
+        assertThat(page.getTotalElements()).isEqualTo(60);
+        assertThat(page.getContent()).extracting(VisiteurAuditDTO::getOperationTimestamp)
+                .containsExactlyElementsOf(newestFirst.subList(21, 28));
+        assertThat(visiteurAuditService.findByDateRange(now.minusYears(2), now, PageRequest.of(8, 7)).getContent())
+                .extracting(VisiteurAuditDTO::getOperationTimestamp)
+                .containsExactlyElementsOf(newestFirst.subList(56, 60));
+    }
+
+    private void insertVisiteurAudit(Long visiteurId, LocalDateTime timestamp) {
+        jdbcTemplate.update("INSERT INTO visiteur_audit (audit_id, visiteur_id, operation_type, event_type, operation_timestamp, performed_by, cin) "
+                + "VALUES (NEXT VALUE FOR visiteur_audit_seq, ?, 'CREATE', 'CHECK_IN', ?, 'agent', '12345678')", visiteurId, Timestamp.valueOf(timestamp));
+    }
+}
@@ -0,0 +1,118 @@
+package com.csys.template.service;
+
+import com.csys.template.repository.VisiteurAuditRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "audit.payload.migration-chunk-size=2")
+class AuditPayloadMigrationServiceTests {
+
+    @Autowired
+    private AuditPayloadMigrationService auditPayloadMigrationService;
+
+    @Autowired
+    private VisiteurAuditRepository visiteurAuditRepository;
+
+    @Autowired
+    private VisiteurAuditService visiteurAuditService;
+
+    @Autowired
+    private AuditArchiveService auditArchiveService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        // Table as left by audit-payload-binary.sql: text moved to the *_json columns, binary columns empty
+        jdbcTemplate.execute("ALTER TABLE visiteur_audit ADD COLUMN old_values_json TEXT");
+        jdbcTemplate.execute("ALTER TABLE visiteur_audit ADD COLUMN new_values_json TEXT");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("ALTER TABLE visiteur_audit DROP COLUMN IF EXISTS old_values_json");
+        jdbcTemplate.execute("ALTER TABLE visiteur_audit DROP COLUMN IF EXISTS new_values_json");
+        auditPayloadMigrationService.findPendingTables();
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+    }
+
+    @Test
+    void textPayloadsAreReencodedAndTextColumnsDropped() {
+        insertTextAudit(1L, null, "{\"cin\":\"12345678\",\"nom\":\"Ben Salah\",\"dateSortie\":null}");
+        insertTextAudit(2L, "{\"observation\":null}", "{\"observation\":\"Livraison au magasin\"}");
+        insertTextAudit(3L, "{\"dateSortie\":null,\"userSortie\":null}",
+                "{\"dateSortie\":\"2026-10-19T17:30:00\",\"userSortie\":\"agent\"}");
+
+        assertThat(auditPayloadMigrationService.migrateTextPayloads()).isEqualTo(3);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE TABLE_NAME = 'VISITEUR_AUDIT' AND COLUMN_NAME LIKE '%_JSON'", Long.class)).isZero();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(visiteurAuditRepository.findById(1L)).get()
+                    .satisfies(audit -> assertThat(audit.getOldValues()).isNull())
+                    .satisfies(audit -> assertThat(audit.getNewValues())
+                            .isEqualTo("{\"cin\":\"12345678\",\"nom\":\"Ben Salah\",\"dateSortie\":null}"));
+            assertThat(visiteurAuditRepository.findById(3L)).get()
+                    .satisfies(audit -> assertThat(audit.getOldValues()).isEqualTo("{\"dateSortie\":null,\"userSortie\":null}"))
+                    .satisfies(audit -> assertThat(audit.getNewValues())
+                            .isEqualTo("{\"dateSortie\":\"2026-10-19T17:30:00\",\"userSortie\":\"agent\"}"));
+        });
+        assertThat(auditPayloadMigrationService.migrateTextPayloads()).isZero();
+    }
+
+    @Test
+    void payloadsThatAreNotJsonAreKeptAsText() {
+        String oldValues = "Visiteur(id=1, cin=12345678, nom=Ben Salah, dateSortie=null)";
+        insertTextAudit(1L, oldValues, "{\"dateSortie\":\"2026-10-19T17:30:00\"} trailing");
+
+        assertThat(auditPayloadMigrationService.migrateTextPayloads()).isEqualTo(1);
+
+        assertThat(visiteurAuditService.findById(1L)).get()
+                .satisfies(audit -> assertThat(audit.getOldValues()).isEqualTo(oldValues))
+                .satisfies(audit -> assertThat(audit.getNewValues()).isEqualTo("{\"dateSortie\":\"2026-10-19T17:30:00\"} trailing"));
+    }
+
+    @Test
+    void recordsNotConvertedYetAreReadFromTheTextColumns() {
+        // Old enough to be archived, once converted
+        insertTextAudit(1L, LocalDateTime.now().minusYears(2), "{\"observation\":null}",
+                "{\"observation\":\"Livraison au magasin\"}");
+        auditPayloadMigrationService.findPendingTables();
+
+        assertThat(auditPayloadMigrationService.isPending(AuditArchiveService.VISITEUR_AUDIT)).isTrue();
+        assertThat(visiteurAuditService.findById(1L)).get()
+                .satisfies(audit -> assertThat(audit.getOldValues()).isEqualTo("{\"observation\":null}"))
+                .satisfies(audit -> assertThat(audit.getNewValues()).isEqualTo("{\"observation\":\"Livraison au magasin\"}"));
+        assertThat(auditArchiveService.archiveColdMonths()).isZero();
+        assertThat(visiteurAuditRepository.existsById(1L)).isTrue();
+
+        auditPayloadMigrationService.migrateTextPayloads();
+        assertThat(auditPayloadMigrationService.isPending(AuditArchiveService.VISITEUR_AUDIT)).isFalse();
+    }
+
+    private void insertTextAudit(Long auditId, String oldValues, String newValues) {
+        insertTextAudit(auditId, LocalDateTime.now(), oldValues, newValues);
+    }
+
+    private void insertTextAudit(Long auditId, LocalDateTime timestamp, String oldValues, String newValues) {
+        jdbcTemplate.update("INSERT INTO visiteur_audit (audit_id, visiteur_id, operation_type, operation_timestamp, performed_by, "
+                        + "old_values_json, new_values_json) VALUES (?, 1, 'UPDATE', ?, 'agent', ?, ?)",
+                auditId, Timestamp.valueOf(timestamp), oldValues, newValues);
+    }
+}
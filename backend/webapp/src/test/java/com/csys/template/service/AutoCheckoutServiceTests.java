@@ -0,0 +1,86 @@
+package com.csys.template.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "visiteur.auto-checkout.chunk-size=7")
+class AutoCheckoutServiceTests {
+
+    @Autowired
+    private AutoCheckoutService autoCheckoutService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+    }
+
+    @Test
+    void staleVisitsAreClosedInChunksAndAudited() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            insertVisit(String.format("%08d", i), now.minusHours(30), null);
+        }
+        insertVisit("10000001", now.minusHours(1), null);                           // still within the shift
+        insertVisit("10000002", now.minusHours(30), now.minusHours(29));            // already scanned out
+
+        int closed = autoCheckoutService.checkoutOlderThan(now.minusHours(12));
+
+        assertThat(closed).isEqualTo(20);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur WHERE user_sortie = ? AND date_sortie IS NOT NULL",
+                Long.class, AutoCheckoutService.SYSTEM_USER)).isEqualTo(20L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur WHERE date_sortie IS NULL", Long.class)).isEqualTo(1L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur_audit WHERE performed_by = ? AND date_sortie IS NOT NULL",
+                Long.class, AutoCheckoutService.SYSTEM_USER)).isEqualTo(20L);
+
+        assertThat(autoCheckoutService.checkoutOlderThan(now.minusHours(12))).isZero();
+    }
+
+    @Test
+    void overlappingRunsAuditEachVisitOnce() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 200; i++) {
+            insertVisit(String.format("%08d", i), now.minusHours(30), null);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> autoCheckoutService.checkoutOlderThan(now.minusHours(12)));
+            Future<Integer> second = executor.submit(() -> autoCheckoutService.checkoutOlderThan(now.minusHours(12)));
+            assertThat(first.get(30, TimeUnit.SECONDS) + second.get(30, TimeUnit.SECONDS)).isEqualTo(200);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur_audit WHERE performed_by = ?",
+                Long.class, AutoCheckoutService.SYSTEM_USER)).isEqualTo(200L);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT visiteur_id) FROM visiteur_audit WHERE performed_by = ?",
+                Long.class, AutoCheckoutService.SYSTEM_USER)).isEqualTo(200L);
+    }
+
+    private void insertVisit(String cin, LocalDateTime dateEntree, LocalDateTime dateSortie) {
+        jdbcTemplate.update("INSERT INTO visiteur (id, cin, nom, prenom, date_entree, date_sortie, user_entree, version) "
+                        + "VALUES (NEXT VALUE FOR visiteur_seq, ?, 'Nom', 'Prenom', ?, ?, 'agent', 0)",
+                cin, Timestamp.valueOf(dateEntree), dateSortie != null ? Timestamp.valueOf(dateSortie) : null);
+    }
+}
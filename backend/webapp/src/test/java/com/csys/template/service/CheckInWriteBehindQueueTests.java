@@ -0,0 +1,166 @@
+package com.csys.template.service;
+
+import com.csys.template.audit.AuditOutboxRelay;
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.QueuedCheckInDTO;
+import com.csys.template.dto.VisiteurDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+@SpringBootTest
+class CheckInWriteBehindQueueTests {
+
+    private static Path journal;
+
+    @Autowired
+    private CheckInWriteBehindQueue checkInQueue;
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    @Qualifier("auditObjectMapper")
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditOutboxRelay auditOutboxRelay;
+
+    /**
+     * Start the context with a journal holding one check-in acknowledged before a "crash".
+     */
+    @DynamicPropertySource
+    static void writeBehindProperties(DynamicPropertyRegistry registry) throws IOException {
+        journal = Files.createTempDirectory("checkin-journal").resolve("journal.ndjson");
+        Files.writeString(journal, "{\"entry\":{\"provisionalId\":\"before-crash\",\"currentUser\":\"agent\","
+                + "\"dateEntree\":\"" + LocalDateTime.now().minusMinutes(5) + "\",\"visiteur\":{\"cin\":\"99999999\","
+                + "\"nom\":\"Replayed\",\"prenom\":\"Visit\",\"matriculeFiscale\":\"1234567A\",\"typeVisiteur\":\"FOURNISSEUR\"}}}\n"
+                + "{\"entry\":{\"provisionalId\":\"torn");
+        registry.add("visiteur.write-behind.enabled", () -> "true");
+        registry.add("visiteur.write-behind.journal", journal::toString);
+        registry.add("visiteur.write-behind.batch-size", () -> "10");
+    }
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        // Let the replayed check-in go through before cleaning up
+        awaitDrained();
+        jdbcTemplate.update("DELETE FROM audit_outbox");
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM users WHERE username = 'agent'");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+    }
+
+    @Test
+    void queuedCheckInsAreAcknowledgedThenPersisted() throws Exception {
+        assertThat(checkInQueue.findPersisted("before-crash")).get()
+                .extracting(VisiteurDTO::getNom).isEqualTo("Replayed");
+
+        List<QueuedCheckInDTO> acks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            acks.add(checkInQueue.enqueue(visiteur(String.format("%08d", i)), "agent"));
+        }
+        assertThatThrownBy(() -> checkInQueue.enqueue(visiteur("00000000"), "agent"))
+                .hasMessageContaining("is already in use by an active visiteur");
+
+        awaitDrained();
+
+        assertThat(acks).allSatisfy(ack -> assertThat(checkInQueue.findPersisted(ack.getProvisionalId())).isPresent());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur WHERE date_sortie IS NULL", Long.class)).isEqualTo(50L);
+        auditOutboxRelay.relayPending();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur_audit WHERE performed_by = 'agent'", Long.class)).isEqualTo(50L);
+        assertThat(Files.size(journal)).isZero();
+    }
+
+    @Test
+    void replayedCheckInAlreadyPersistedIsRecognised() {
+        // Persisted just before the crash, the entry time rounded as by a SQL Server datetime column
+        LocalDateTime acknowledged = LocalDateTime.of(2026, 10, 19, 7, 30, 0, 125_500_000);
+        jdbcTemplate.update("INSERT INTO visiteur (id, cin, nom, prenom, matricule_fiscale, type_visiteur, date_entree, "
+                        + "user_entree, version) VALUES (NEXT VALUE FOR visiteur_seq, '88888888', 'Ben Salah', 'Amine', "
+                        + "'1234567A', 'FOURNISSEUR', ?, 'agent', 0)",
+                Timestamp.valueOf(acknowledged.withNano(127_000_000)));
+
+        List<VisiteurDTO> replayed = visiteurService.saveQueuedCheckIns(List.of(
+                new QueuedCheckInDTO("replayed", visiteur("88888888"), "agent", acknowledged)));
+
+        assertThat(replayed).singleElement().isNotNull()
+                .extracting(VisiteurDTO::getCin).isEqualTo("88888888");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur WHERE cin = '88888888'", Long.class))
+                .isEqualTo(1L);
+    }
+
+    @Test
+    void journalLongerThanTheCapacityIsReplayed() throws Exception {
+        Path longJournal = Files.createTempDirectory("checkin-journal").resolve("journal.ndjson");
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 3; i++) {
+            lines.append("{\"entry\":{\"provisionalId\":\"replayed-").append(i).append("\",\"currentUser\":\"agent\",")
+                    .append("\"dateEntree\":\"").append(LocalDateTime.now().minusMinutes(5)).append("\",\"visiteur\":")
+                    .append("{\"cin\":\"7777777").append(i).append("\",\"nom\":\"Replayed\",\"prenom\":\"Visit\",")
+                    .append("\"matriculeFiscale\":\"1234567A\",\"typeVisiteur\":\"FOURNISSEUR\"}}}\n");
+        }
+        Files.writeString(longJournal, lines);
+        CheckInWriteBehindQueue smallQueue = new CheckInWriteBehindQueue(visiteurService, objectMapper);
+        ReflectionTestUtils.setField(smallQueue, "enabled", true);
+        ReflectionTestUtils.setField(smallQueue, "capacity", 1);
+        ReflectionTestUtils.setField(smallQueue, "batchSize", 10);
+        ReflectionTestUtils.setField(smallQueue, "journalPath", longJournal.toString());
+        ReflectionTestUtils.setField(smallQueue, "drainTimeout", Duration.ofSeconds(5));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), smallQueue::start);
+        try {
+            for (int i = 0; i < 100 && smallQueue.getPendingCount() > 0; i++) {
+                Thread.sleep(50);
+            }
+            assertThat(smallQueue.getPendingCount()).isZero();
+            assertThat(smallQueue.findPersisted("replayed-2")).isPresent();
+            assertThat(smallQueue.enqueue(visiteur("77777779"), "agent")).isNotNull();
+        } finally {
+            smallQueue.shutdown();
+        }
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        for (int i = 0; i < 100 && checkInQueue.getPendingCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(checkInQueue.getPendingCount()).isZero();
+    }
+
+    private VisiteurDTO visiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Ben Salah");
+        dto.setPrenom("Amine");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
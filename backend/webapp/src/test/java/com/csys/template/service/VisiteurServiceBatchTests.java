@@ -0,0 +1,162 @@
+package com.csys.template.service;
+
+import com.csys.template.audit.AuditOutboxRelay;
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.VisiteurBatchResultDTO;
+import com.csys.template.dto.VisiteurDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.csys.template.service.VisiteurServiceBatchTests$CounterStatements"
+})
+class VisiteurServiceBatchTests {
+
+    private static final Logger log = LoggerFactory.getLogger(VisiteurServiceBatchTests.class);
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditOutboxRelay auditOutboxRelay;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM audit_outbox");
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+    }
+
+    @Test
+    void invalidItemsAreReportedAndValidOnesCreated() {
+        visiteurService.save(visiteur("00000001"), "agent");
+
+        List<VisiteurDTO> batch = List.of(
+                visiteur("00000002"),
+                visiteur("00000001"),   // already an active visiteur
+                visiteur("123"),        // bad CIN format
+                visiteur("00000002"),   // duplicate inside the batch
+                visiteur("00000003"));
+
+        VisiteurBatchResultDTO result = visiteurService.saveBatch(batch, "agent");
+
+        assertThat(result.getSubmitted()).isEqualTo(5);
+        assertThat(result.getCreated()).extracting(VisiteurDTO::getCin).containsExactly("00000002", "00000003");
+        assertThat(result.getCreated()).allSatisfy(dto -> {
+            assertThat(dto.getId()).isNotNull();
+            assertThat(dto.getUserEntree()).isEqualTo("agent");
+        });
+        assertThat(result.getErrors()).extracting(VisiteurBatchResultDTO.ItemError::getIndex).containsExactly(1, 2, 3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur", Long.class)).isEqualTo(3L);
+    }
+
+    @Test
+    void batchThroughput() {
+        int size = 500;
+
+        // Warm up the insert path so the measurement is not dominated by class loading and JIT
+        visiteurService.saveBatch(batchOf(size, 20_000_000), "agent");
+        jdbcTemplate.update("UPDATE visiteur SET date_sortie = CURRENT_TIMESTAMP");
+        auditOutboxRelay.relayPending();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CounterStatements.COUNT.set(0);
+
+        long start = System.nanoTime();
+        VisiteurBatchResultDTO result = visiteurService.saveBatch(batchOf(size, 10_000_000), "agent");
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        auditOutboxRelay.relayPending();
+
+        long counterStatements = CounterStatements.COUNT.get();
+        log.info("Batch check-in throughput: {} visits in {} ms ({} visits/s), {} JDBC statements for {} inserts, "
+                        + "{} of them on the audit counters",
+                 size, elapsedMs, size * 1000L / elapsedMs,
+                 statistics.getPrepareStatementCount(), statistics.getEntityInsertCount(), counterStatements);
+
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getCreated()).hasSize(size);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur_audit", Long.class)).isEqualTo(2L * size);
+        // Visits, their outbox rows and the audit rows relayed from them go out in JDBC batches
+        // rather than one statement per row; so do the visits' audit counters, a few statements per relay batch
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(4L * size);
+        assertThat(counterStatements).isPositive().isLessThan(size / 20);
+        assertThat(statistics.getPrepareStatementCount() - counterStatements).isLessThan(size / 10);
+    }
+
+    @Test
+    void productionDialectDrawsIdsFromSequences() throws Exception {
+        // The test application.yml shadows the main one on the classpath: load the file itself
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader().load("application.yml",
+                new FileSystemResource("src/main/resources/application.yml"));
+        String dialect = (String) sources.get(0).getProperty("spring.jpa.database-platform");
+
+        // Without sequences Hibernate would emulate them with tables named like the sequences of pooled-id-sequences.sql
+        assertThat(((Dialect) Class.forName(dialect).getDeclaredConstructor().newInstance()).supportsSequences()).isTrue();
+    }
+
+    /**
+     * Counts the statements Hibernate prepares on the audit counter tables.
+     */
+    public static class CounterStatements implements StatementInspector {
+
+        static final AtomicLong COUNT = new AtomicLong();
+
+        @Override
+        public String inspect(String sql) {
+            String lowerCase = sql.toLowerCase();
+            if (lowerCase.contains("visiteur_audit_count") || lowerCase.contains("audit_operation_count")) {
+                COUNT.incrementAndGet();
+            }
+            return sql;
+        }
+    }
+
+    private List<VisiteurDTO> batchOf(int size, int firstCin) {
+        List<VisiteurDTO> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            batch.add(visiteur(String.format("%08d", firstCin + i)));
+        }
+        return batch;
+    }
+
+    private VisiteurDTO visiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Fournisseur");
+        dto.setPrenom("Livraison");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
@@ -0,0 +1,106 @@
+package com.csys.template.service;
+
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.VisiteurDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test of concurrent check-ins: many gates submit the same few CINs at the same moment.
+ * H2 has no filtered unique index, so only the per-CIN locks stand between the check and the insert.
+ */
+@SpringBootTest
+class VisiteurServiceCheckInConcurrencyTests {
+
+    private static final Logger log = LoggerFactory.getLogger(VisiteurServiceCheckInConcurrencyTests.class);
+
+    private static final int GATES = 8;
+    private static final int CINS = 20;
+    private static final int ATTEMPTS_PER_CIN = 5;
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+    }
+
+    @Test
+    void sameCinIsNeverAdmittedTwice() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        List<Future<Boolean>> attempts = new ArrayList<>();
+        // Attempts on the same CIN are queued next to each other so they run at the same time
+        for (int i = 0; i < CINS; i++) {
+            String cin = String.format("%08d", i);
+            for (int attempt = 0; attempt < ATTEMPTS_PER_CIN; attempt++) {
+                attempts.add(gates.submit(() -> {
+                    start.await();
+                    return checkIn(cin);
+                }));
+            }
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int admitted = 0;
+        for (Future<Boolean> attempt : attempts) {
+            if (attempt.get()) {
+                admitted++;
+            }
+        }
+        gates.shutdown();
+        assertThat(gates.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        log.info("{} concurrent check-ins of {} CINs on {} gates in {} ms", attempts.size(), CINS, GATES,
+                 (System.nanoTime() - begin) / 1_000_000);
+
+        assertThat(admitted).isEqualTo(CINS);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT cin FROM visiteur WHERE date_sortie IS NULL GROUP BY cin HAVING COUNT(*) > 1", String.class))
+                .isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visiteur", Long.class)).isEqualTo(CINS);
+    }
+
+    private boolean checkIn(String cin) {
+        try {
+            visiteurService.save(visiteur(cin), "agent");
+            return true;
+        } catch (IllegalArgumentException e) {
+            assertThat(e).hasMessageContaining("is already in use by an active visiteur");
+            return false;
+        }
+    }
+
+    private VisiteurDTO visiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Ben Salah");
+        dto.setPrenom("Amine");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
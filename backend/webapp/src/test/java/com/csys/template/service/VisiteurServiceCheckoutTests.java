@@ -0,0 +1,109 @@
+package com.csys.template.service;
+
+import com.csys.template.audit.AuditOutboxRelay;
+import com.csys.template.domain.TypeVisiteur;
+import com.csys.template.dto.VisiteurDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class VisiteurServiceCheckoutTests {
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditOutboxRelay auditOutboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM audit_outbox");
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent1', 'x', 'ROLE_USER')");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent2', 'x', 'ROLE_USER')");
+    }
+
+    @Test
+    void concurrentCheckoutsCloseTheVisitOnce() throws Exception {
+        Long id = visiteurService.save(visiteur("12345678"), "agent1").getId();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<VisiteurDTO>> results = new ArrayList<>();
+        for (String agent : List.of("agent1", "agent2")) {
+            Callable<VisiteurDTO> checkout = () -> {
+                start.await();
+                return visiteurService.markSortie(id, agent);
+            };
+            results.add(executor.submit(checkout));
+        }
+        start.countDown();
+
+        int closed = 0;
+        int alreadyLeft = 0;
+        for (Future<VisiteurDTO> result : results) {
+            try {
+                assertThat(result.get().getDateSortie()).isNotNull();
+                closed++;
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).hasMessage("visiteur.AlreadyLeft");
+                alreadyLeft++;
+            }
+        }
+        executor.shutdown();
+
+        assertThat(closed).isEqualTo(1);
+        assertThat(alreadyLeft).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT version FROM visiteur WHERE id = ?", Long.class, id)).isEqualTo(1L);
+        auditOutboxRelay.relayPending();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM visiteur_audit WHERE visiteur_id = ? AND date_sortie IS NOT NULL", Long.class, id))
+                .isEqualTo(1L);
+    }
+
+    @Test
+    void unknownVisitIsNotFound() {
+        assertThatThrownBy(() -> visiteurService.markSortie(-1L, "agent1")).hasMessage("visiteur.NotFound");
+    }
+
+    @Test
+    void staleUpdateIsRejected() {
+        VisiteurDTO read = visiteurService.save(visiteur("12345678"), "agent1");
+        visiteurService.markSortie(read.getId(), "agent2");
+
+        read.setObservation("edited from a stale screen");
+        assertThatThrownBy(() -> visiteurService.update(read)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+    }
+
+    private VisiteurDTO visiteur(String cin) {
+        VisiteurDTO dto = new VisiteurDTO();
+        dto.setCin(cin);
+        dto.setNom("Ben Salah");
+        dto.setPrenom("Amine");
+        dto.setMatriculeFiscale("1234567A");
+        dto.setTypeVisiteur(TypeVisiteur.FOURNISSEUR);
+        return dto;
+    }
+}
@@ -0,0 +1,66 @@
+package com.csys.template.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class VisiteurServiceFieldsTests {
+
+    @Autowired
+    private VisiteurService visiteurService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("INSERT INTO visiteur (id, cin, nom, prenom, type_visiteur, date_entree, observation, detaille, user_entree, version) "
+                + "VALUES (NEXT VALUE FOR visiteur_seq, '12345678', 'Ben Salah', 'Amine', 'DOCTEUR', CURRENT_TIMESTAMP, "
+                + "'Long observation', 'Cardiologie', 'agent', 0)");
+    }
+
+    @Test
+    void summarySelectsOnlyTheTableColumns() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Map<String, Object>> rows = visiteurService.findVisiteurFieldsByFilter("tous", null, null, "summary");
+
+        assertThat(rows).hasSize(1);
+        assertThat(rows.get(0)).containsOnlyKeys(
+                "id", "cin", "nom", "prenom", "matriculeFiscale", "typeVisiteur", "dateEntree", "dateSortie");
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void sparseFieldsetAlwaysIncludesTheId() {
+        List<Map<String, Object>> rows = visiteurService.findVisiteurFieldsByFilter(
+                "entree", LocalDate.now(), LocalDate.now(), "nom, detaille");
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row).containsOnlyKeys("id", "nom", "detaille");
+            assertThat(row).containsEntry("detaille", "Cardiologie");
+        });
+        assertThatThrownBy(() -> visiteurService.findVisiteurFieldsByFilter("tous", null, null, "nom,password"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("visiteur.UnknownField: password");
+    }
+}
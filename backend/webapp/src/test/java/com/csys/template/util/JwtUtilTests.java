@@ -0,0 +1,64 @@
+package com.csys.template.util;
+
+import com.csys.template.security.JwtKeyRing;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilTests {
+
+    private final JwtKeyRing keyRing = JwtKeyRing.ephemeral();
+    private final JwtUtil jwtUtil = new JwtUtil(keyRing, 100);
+    private final UserDetails agent = new User("agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+
+    @Test
+    void verifiedClaimsAreCachedPerToken() {
+        String token = jwtUtil.generateToken(agent);
+
+        Claims claims = jwtUtil.extractAllClaims(token);
+
+        assertThat(jwtUtil.extractAllClaims(token)).isSameAs(claims);
+        assertThat(jwtUtil.validateClaims(claims, agent)).isTrue();
+        assertThat(jwtUtil.validateToken(token, agent)).isTrue();
+    }
+
+    @Test
+    void tamperedTokensAreNotServedFromTheCache() {
+        String token = jwtUtil.generateToken(agent);
+        jwtUtil.extractAllClaims(token);
+
+        String[] parts = token.split("\\.");
+        String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        assertThatThrownBy(() -> jwtUtil.extractAllClaims(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void cachedClaimsExpireWithTheirToken() throws InterruptedException {
+        JwtKeyRing.SigningKey signingKey = keyRing.getSigningKey();
+        String token = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKey.getKid())
+                .setSubject("agent")
+                // exp has a one second resolution: at least one second left once truncated
+                .setExpiration(new Date(System.currentTimeMillis() + 2000))
+                .signWith(signingKey.getKey())
+                .compact();
+        assertThat(jwtUtil.extractAllClaims(token).getSubject()).isEqualTo("agent");
+
+        Thread.sleep(2100);
+
+        assertThatThrownBy(() -> jwtUtil.extractAllClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+}
@@ -0,0 +1,165 @@
+package com.csys.template.web.rest;
+
+import com.csys.template.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load test of the analytics bulkhead: gate check-ins are timed alone, then while report clients
+ * hammer the chart endpoints with more concurrent requests than there are Tomcat workers.
+ * Without the bulkhead every Tomcat worker ends up busy on a report and check-ins queue behind them.
+ * The bulkhead keeps Tomcat workers free, not CPUs: the report clients, the analytics thread and
+ * the check-ins share the machine's cores, so check-ins still slow down by the CPU they lose to those
+ * (70 to 170 ms at p95 on a single core). The bound checked is that this stays well under the
+ * time of a single report, the least a check-in queued behind reports would wait.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=8",
+        "analytics.executor.threads=1",
+        "analytics.executor.queue-capacity=2"
+})
+class AnalyticsBulkheadLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsBulkheadLoadTests.class);
+
+    private static final int HISTORY = 20_000;
+    private static final int REPORT_CLIENTS = 16;
+    private static final int CHECK_INS = 30;
+    private static final long MARGIN_MILLIS = 250;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    private HttpHeaders headers;
+    private int nextCin;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+
+        // A year of closed visits for the reports to chew on
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < HISTORY; i++) {
+            LocalDateTime entree = start.plusMinutes(i * 26L);
+            rows.add(new Object[]{String.format("%08d", 50_000_000 + i), Timestamp.valueOf(entree),
+                    Timestamp.valueOf(entree.plusMinutes(5 + i % 300))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO visiteur (id, cin, nom, prenom, type_visiteur, date_entree, date_sortie, version) "
+                + "VALUES (NEXT VALUE FOR visiteur_seq, ?, 'Nom', 'Prenom', 'FOURNISSEUR', ?, ?, 0)", rows);
+
+        headers = new HttpHeaders();
+        headers.setBearerAuth(jwtUtil.generateToken(
+                new User("agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")))));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void checkInsDoNotWaitBehindAnalyticsRequests() throws Exception {
+        timeCheckIns(); // warm-up
+        long[] baseline = timeCheckIns();
+
+        AtomicBoolean loading = new AtomicBoolean(true);
+        Map<HttpStatus, AtomicInteger> reportStatuses = new ConcurrentHashMap<>();
+        Queue<Long> reportLatencies = new ConcurrentLinkedQueue<>();
+        ExecutorService reportClients = Executors.newFixedThreadPool(REPORT_CLIENTS);
+        for (int i = 0; i < REPORT_CLIENTS; i++) {
+            reportClients.submit(() -> {
+                while (loading.get()) {
+                    long start = System.nanoTime();
+                    ResponseEntity<String> response = restTemplate.exchange(
+                            "/api/visiteurs/charts/visit-duration-analysis", HttpMethod.GET,
+                            new HttpEntity<>(headers), String.class);
+                    reportStatuses.computeIfAbsent(response.getStatusCode(), s -> new AtomicInteger()).incrementAndGet();
+                    if (response.getStatusCode() == HttpStatus.OK) {
+                        reportLatencies.add((System.nanoTime() - start) / 1_000_000);
+                    }
+                    if (response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+                        // Like the dashboard, back off before retrying
+                        Thread.sleep(200);
+                    }
+                }
+                return null;
+            });
+        }
+        Thread.sleep(500);
+
+        long[] underLoad = timeCheckIns();
+        loading.set(false);
+        reportClients.shutdown();
+        assertThat(reportClients.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+        long reportMillis = percentile(reportLatencies.stream().mapToLong(Long::longValue).toArray(), 50);
+        log.info("Check-in latency p50/p95 (ms): alone {}/{}, under analytics load {}/{}; report responses {}, "
+                        + "report latency p50 {} ms",
+                 percentile(baseline, 50), percentile(baseline, 95),
+                 percentile(underLoad, 50), percentile(underLoad, 95), reportStatuses, reportMillis);
+
+        assertThat(reportStatuses).containsKey(HttpStatus.OK);
+        assertThat(reportStatuses).containsKey(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(reportMillis).isGreaterThan(MARGIN_MILLIS);
+        assertThat(percentile(underLoad, 95)).isLessThanOrEqualTo(percentile(baseline, 95) + MARGIN_MILLIS);
+    }
+
+    private long[] timeCheckIns() {
+        long[] latencies = new long[CHECK_INS];
+        for (int i = 0; i < CHECK_INS; i++) {
+            String body = "{\"cin\":\"" + String.format("%08d", nextCin++) + "\",\"nom\":\"Ben Salah\",\"prenom\":\"Amine\","
+                    + "\"matriculeFiscale\":\"1234567A\",\"typeVisiteur\":\"FOURNISSEUR\"}";
+            long start = System.nanoTime();
+            ResponseEntity<String> response = restTemplate.postForEntity("/api/visiteurs/createvis",
+                    new HttpEntity<>(body, headers), String.class);
+            latencies[i] = (System.nanoTime() - start) / 1_000_000;
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -0,0 +1,87 @@
+package com.csys.template.web.rest;
+
+import com.csys.template.domain.User;
+import com.csys.template.util.JwtUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.NaturalIdStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * An authenticated check-in validates its user through the second-level cache:
+ * once the user has been read, further check-ins do not touch the users table.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CheckInUserCacheTests {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM users WHERE username = 'agent'");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        statistics.setStatisticsEnabled(false);
+        statistics.clear();
+        jdbcTemplate.update("DELETE FROM visiteur");
+    }
+
+    @Test
+    void secondCheckInDoesNotReadTheUsersTable() {
+        String token = jwtUtil.generateToken(new org.springframework.security.core.userdetails.User(
+                "agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))));
+        assertThat(checkIn(token, "11111111")).isEqualTo(HttpStatus.OK);
+
+        statistics.clear();
+        assertThat(checkIn(token, "22222222")).isEqualTo(HttpStatus.OK);
+
+        NaturalIdStatistics naturalIds = statistics.getNaturalIdStatistics(User.class.getName());
+        assertThat(statistics.getEntityStatistics(User.class.getName()).getLoadCount()).isZero();
+        assertThat(naturalIds.getExecutionCount()).isZero();
+        assertThat(naturalIds.getCacheHitCount()).isPositive();
+    }
+
+    private HttpStatus checkIn(String token, String cin) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        Map<String, Object> visiteur = Map.of("cin", cin, "nom", "Nom", "prenom", "Prenom",
+                "matriculeFiscale", "1234567A", "typeVisiteur", "FOURNISSEUR");
+        return restTemplate.exchange("/api/visiteurs/createvis", HttpMethod.POST, new HttpEntity<>(visiteur, headers), String.class)
+                .getStatusCode();
+    }
+}
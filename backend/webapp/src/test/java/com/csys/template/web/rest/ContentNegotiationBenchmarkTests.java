@@ -0,0 +1,159 @@
+package com.csys.template.web.rest;
+
+import com.csys.template.dto.VisiteurDTO;
+import com.csys.template.util.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the visitor table payload (GET /api/visiteurs) as JSON, gzipped JSON, Smile and CBOR,
+ * and the serialization CPU of each mapper against the plain reflective JSON mapper used before.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.compression.enabled=true",
+        "server.compression.mime-types=application/json"
+})
+class ContentNegotiationBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ContentNegotiationBenchmarkTests.class);
+
+    private static final int VISITEURS = 5_000;
+    private static final int ROUNDS = 50;
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    @Qualifier("auditObjectMapper")
+    private ObjectMapper jsonMapper;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM users WHERE username = 'agent'");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', 'x', 'ROLE_USER')");
+
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < VISITEURS; i++) {
+            LocalDateTime entree = start.plusMinutes(i * 8L);
+            rows.add(new Object[]{String.format("%08d", 60_000_000 + i), "Nom" + i, "Prenom" + i,
+                    Timestamp.valueOf(entree), Timestamp.valueOf(entree.plusMinutes(5 + i % 300))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO visiteur (id, cin, nom, prenom, matricule_fiscale, type_visiteur, date_entree, date_sortie, version) "
+                + "VALUES (NEXT VALUE FOR visiteur_seq, ?, ?, ?, '1234567A', 'FOURNISSEUR', ?, ?, 0)", rows);
+
+        token = jwtUtil.generateToken(
+                new User("agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Test
+    void binaryFormatsAreNegotiatedAndSmallerThanJson() throws Exception {
+        ResponseEntity<byte[]> json = get(MediaType.APPLICATION_JSON, false);
+        ResponseEntity<byte[]> gzip = get(MediaType.APPLICATION_JSON, true);
+        ResponseEntity<byte[]> smile = get(SMILE, false);
+        ResponseEntity<byte[]> cbor = get(MediaType.APPLICATION_CBOR, false);
+
+        assertThat(gzip.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(smile.getHeaders().getContentType()).isEqualTo(SMILE);
+        assertThat(cbor.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_CBOR);
+
+        VisiteurDTO[] fromJson = jsonMapper.readValue(json.getBody(), VisiteurDTO[].class);
+        VisiteurDTO[] fromSmile = smileConverter.getObjectMapper().readValue(smile.getBody(), VisiteurDTO[].class);
+        VisiteurDTO[] fromCbor = cborConverter.getObjectMapper().readValue(cbor.getBody(), VisiteurDTO[].class);
+        assertThat(fromJson).hasSize(VISITEURS);
+        assertThat(fromSmile).containsExactly(fromJson);
+        assertThat(fromCbor).containsExactly(fromJson);
+
+        List<VisiteurDTO> visiteurs = List.of(fromJson);
+        ObjectMapper reflective = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        long reflectiveMicros = serializationMicros(reflective, visiteurs);
+        log.info("{} visiteurs: JSON {} bytes ({} us, {} us without Blackbird), gzip JSON {} bytes, "
+                        + "Smile {} bytes ({} us), CBOR {} bytes ({} us)",
+                 VISITEURS, json.getBody().length, serializationMicros(jsonMapper, visiteurs), reflectiveMicros,
+                 gzip.getBody().length,
+                 smile.getBody().length, serializationMicros(smileConverter.getObjectMapper(), visiteurs),
+                 cbor.getBody().length, serializationMicros(cborConverter.getObjectMapper(), visiteurs));
+
+        assertThat(gzip.getBody().length).isLessThan(json.getBody().length / 4);
+        assertThat(smile.getBody().length).isLessThan(json.getBody().length);
+        assertThat(cbor.getBody().length).isLessThan(json.getBody().length);
+    }
+
+    private ResponseEntity<byte[]> get(MediaType accept, boolean gzip) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setAccept(List.of(accept));
+        if (gzip) {
+            headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        ResponseEntity<byte[]> response = restTemplate.exchange("/api/visiteurs", HttpMethod.GET,
+                new HttpEntity<>(headers), byte[].class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response;
+    }
+
+    /**
+     * Median time to serialize the list, after a warm-up.
+     */
+    private static long serializationMicros(ObjectMapper mapper, List<VisiteurDTO> visiteurs) throws Exception {
+        long[] times = new long[ROUNDS];
+        for (int i = -ROUNDS; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            mapper.writeValueAsBytes(visiteurs);
+            if (i >= 0) {
+                times[i] = (System.nanoTime() - start) / 1_000;
+            }
+        }
+        Arrays.sort(times);
+        return times[ROUNDS / 2];
+    }
+}
@@ -0,0 +1,90 @@
+package com.csys.template.web.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyStoreTests {
+
+    private final IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(10), 100, new ObjectMapper());
+
+    @Test
+    void retryWithSameKeyReplaysFirstResponse() {
+        AtomicInteger calls = new AtomicInteger();
+
+        ResponseEntity<?> first = store.execute("k1", "PUT /api/visiteurs/1/sortie", "agent",
+                () -> ResponseEntity.ok("closed " + calls.incrementAndGet()));
+        ResponseEntity<?> retry = store.execute("k1", "PUT /api/visiteurs/1/sortie", "agent",
+                () -> ResponseEntity.ok("closed " + calls.incrementAndGet()));
+
+        assertThat(calls).hasValue(1);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+        assertThat(retry.getHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER)).isEqualTo("true");
+    }
+
+    @Test
+    void failedAttemptsAndOtherEndpointsAreNotReplayed() {
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("k2", "POST /api/visiteurs/createvis", "body", () -> {
+            calls.incrementAndGet();
+            return ResponseEntity.badRequest().body("CIN is required");
+        });
+        store.execute("k2", "POST /api/visiteurs/createvis", "body", () -> ResponseEntity.ok(calls.incrementAndGet()));
+        store.execute("k2", "PUT /api/visiteurs/1/sortie", "body", () -> ResponseEntity.ok(calls.incrementAndGet()));
+        store.execute(null, "PUT /api/visiteurs/1/sortie", "body", () -> ResponseEntity.ok(calls.incrementAndGet()));
+
+        assertThat(calls).hasValue(4);
+    }
+
+    @Test
+    void retryWaitingOnAFirstAttemptThatThrowsRunsTheAction() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        CompletableFuture<ResponseEntity<?>> first = CompletableFuture.supplyAsync(() ->
+                store.execute("k3", "PUT /api/visiteurs/1/sortie", "agent", () -> {
+                    running.countDown();
+                    await(fail);
+                    throw new IllegalStateException("database unavailable");
+                }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<ResponseEntity<?>> retry = CompletableFuture.supplyAsync(() ->
+                store.execute("k3", "PUT /api/visiteurs/1/sortie", "agent", () -> ResponseEntity.ok("closed")));
+        Thread.sleep(100);
+        fail.countDown();
+
+        assertThat(retry.get(5, TimeUnit.SECONDS).getBody()).isEqualTo("closed");
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("database unavailable");
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRefused() {
+        AtomicInteger calls = new AtomicInteger();
+
+        store.execute("k4", "POST /api/visiteurs/createvis", "cin 11111111", () -> ResponseEntity.ok(calls.incrementAndGet()));
+        ResponseEntity<?> reused = store.execute("k4", "POST /api/visiteurs/createvis", "cin 22222222",
+                () -> ResponseEntity.ok(calls.incrementAndGet()));
+
+        assertThat(calls).hasValue(1);
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.csys.template.web.rest;
+
+import com.csys.template.security.LoginThrottle;
+import com.csys.template.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures BCrypt login throughput, then gate check-in latency while scripted clients flood the login
+ * endpoint with wrong passwords: once with the login bulkhead alone, once with throttling as well.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "auth.login.executor.threads=1",
+        "auth.login.executor.queue-capacity=2",
+        "auth.login.throttle.per-ip.capacity=5",
+        "auth.login.throttle.per-ip.per-minute=1",
+        "auth.login.throttle.per-username.capacity=3",
+        "auth.login.throttle.per-username.per-minute=3"
+})
+class LoginThrottleLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(LoginThrottleLoadTests.class);
+
+    private static final int ATTACKERS = 8;
+    private static final int CHECK_INS = 30;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthController authController;
+
+    private HttpHeaders headers;
+    private int nextCin;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM visiteur_audit");
+        jdbcTemplate.update("DELETE FROM visiteur");
+        jdbcTemplate.update("DELETE FROM user_audit");
+        jdbcTemplate.update("DELETE FROM users");
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) VALUES (NEXT VALUE FOR users_seq, 'agent', ?, 'ROLE_USER')",
+                passwordEncoder.encode("secret"));
+
+        headers = new HttpHeaders();
+        headers.setBearerAuth(jwtUtil.generateToken(
+                new User("agent", "x", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")))));
+        headers.setContentType(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    void loginFloodIsContainedAndThrottled() throws Exception {
+        // One successful login, user loaded once
+        ResponseEntity<Map> login = login("agent", "secret");
+        assertThat(login.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(login.getBody()).containsKey("jwt");
+
+        long bcryptMicros = bcryptMicros();
+
+        timeCheckIns(); // warm-up
+        long[] baseline = timeCheckIns();
+
+        LoginThrottle throttle = (LoginThrottle) ReflectionTestUtils.getField(authController, "loginThrottle");
+        ReflectionTestUtils.setField(authController, "loginThrottle", new LoginThrottle(1_000_000, 1_000_000, 1_000_000, 1_000_000));
+        Map<HttpStatus, AtomicInteger> unthrottledStatuses = new ConcurrentHashMap<>();
+        long[] bulkheadOnly = timeCheckInsDuringLoginFlood(unthrottledStatuses);
+
+        ReflectionTestUtils.setField(authController, "loginThrottle", throttle);
+        Map<HttpStatus, AtomicInteger> throttledStatuses = new ConcurrentHashMap<>();
+        long[] throttled = timeCheckInsDuringLoginFlood(throttledStatuses);
+
+        log.info("BCrypt check {} us ({} logins/s per login thread); check-in p50/p95 (ms): alone {}/{}, "
+                        + "login flood with bulkhead only {}/{} {}, with throttling {}/{} {}",
+                 bcryptMicros, 1_000_000 / bcryptMicros,
+                 percentile(baseline, 50), percentile(baseline, 95),
+                 percentile(bulkheadOnly, 50), percentile(bulkheadOnly, 95), unthrottledStatuses,
+                 percentile(throttled, 50), percentile(throttled, 95), throttledStatuses);
+
+        assertThat(throttledStatuses).containsKey(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(percentile(throttled, 95)).isLessThan(3 * percentile(baseline, 95) + 250);
+        // Throttled clients are refused before BCrypt, even with the right password
+        assertThat(login("agent", "secret").getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private long[] timeCheckInsDuringLoginFlood(Map<HttpStatus, AtomicInteger> statuses) throws Exception {
+        AtomicBoolean flooding = new AtomicBoolean(true);
+        AtomicInteger attempt = new AtomicInteger();
+        ExecutorService attackers = Executors.newFixedThreadPool(ATTACKERS);
+        for (int i = 0; i < ATTACKERS; i++) {
+            attackers.submit(() -> {
+                while (flooding.get()) {
+                    HttpStatus status = login("user" + attempt.incrementAndGet() % 50, "guess").getStatusCode();
+                    statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                }
+            });
+        }
+        Thread.sleep(500);
+
+        long[] latencies = timeCheckIns();
+        flooding.set(false);
+        attackers.shutdown();
+        assertThat(attackers.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        return latencies;
+    }
+
+    private ResponseEntity<Map> login(String username, String password) {
+        return restTemplate.postForEntity("/auth/login",
+                Map.of("username", username, "password", password), Map.class);
+    }
+
+    private long bcryptMicros() {
+        String hash = passwordEncoder.encode("secret");
+        passwordEncoder.matches("secret", hash);
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            passwordEncoder.matches("secret", hash);
+        }
+        return (System.nanoTime() - start) / 10_000;
+    }
+
+    private long[] timeCheckIns() {
+        long[] latencies = new long[CHECK_INS];
+        for (int i = 0; i < CHECK_INS; i++) {
+            String body = "{\"cin\":\"" + String.format("%08d", nextCin++) + "\",\"nom\":\"Ben Salah\",\"prenom\":\"Amine\","
+                    + "\"matriculeFiscale\":\"1234567A\",\"typeVisiteur\":\"FOURNISSEUR\"}";
+            long start = System.nanoTime();
+            ResponseEntity<String> response = restTemplate.postForEntity("/api/visiteurs/createvis",
+                    new HttpEntity<>(body, headers), String.class);
+            latencies[i] = (System.nanoTime() - start) / 1_000_000;
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+        return latencies;
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+}
@@ -35,7 +35,8 @@ const Visiteurs = () => {
       const params = {
         filterType: filters.filterType,
         dateFrom: filters.dateFrom || undefined,
-        dateTo: filters.dateTo || undefined
+        dateTo: filters.dateTo || undefined,
+        fields: 'summary' // Observation, details and audit users are loaded when a dialog opens
       };
 
       console.log('Loading visiteurs with params:', params); // Debug log
@@ -90,14 +91,29 @@ const Visiteurs = () => {
     setDialogOpen(true);
   };
 
-  const handleEditVisiteur = (visiteur) => {
-    setSelectedVisiteur(visiteur);
+  // The table only holds the summary columns: load the full visiteur before opening a dialog
+  const loadVisiteurDetails = async (visiteur) => {
+    try {
+      return await visiteurService.getVisiteurById(visiteur.id);
+    } catch (err) {
+      console.error('Error loading visiteur details:', err);
+      setError('Erreur lors du chargement du visiteur: ' + (err.message || 'Erreur inconnue'));
+      return null;
+    }
+  };
+
+  const handleEditVisiteur = async (visiteur) => {
+    const details = await loadVisiteurDetails(visiteur);
+    if (!details) return;
+    setSelectedVisiteur(details);
     setDialogMode('edit');
     setDialogOpen(true);
   };
 
-  const handleViewDetails = (visiteur) => {
-    setViewingVisiteur(visiteur);
+  const handleViewDetails = async (visiteur) => {
+    const details = await loadVisiteurDetails(visiteur);
+    if (!details) return;
+    setViewingVisiteur(details);
     setDetailsDialogOpen(true);
   };
 
@@ -30,7 +30,8 @@ api.interceptors.request.use(
 api.interceptors.response.use(
   (response) => response,
   (error) => {
-    if (error.response?.status === 401) {
+    // A failed login is reported on the login form, not by a redirect
+    if (error.response?.status === 401 && !error.config?.url?.endsWith('/auth/login')) {
       // Token expired or invalid, logout user
       localStorage.removeItem(config.JWT_STORAGE_KEY);
       localStorage.removeItem(config.USER_STORAGE_KEY);
@@ -76,6 +77,11 @@ class AuthService {
 
   // Logout user
   logout() {
+    const token = localStorage.getItem(config.JWT_STORAGE_KEY);
+    if (token) {
+      // Revoke the token on the server; the local session ends whatever the outcome
+      api.post('/auth/logout', null, { headers: { Authorization: `Bearer ${token}` } }).catch(() => {});
+    }
     localStorage.removeItem(config.JWT_STORAGE_KEY);
     localStorage.removeItem(config.USER_STORAGE_KEY);
   }